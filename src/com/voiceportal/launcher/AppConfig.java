@@ -2,6 +2,7 @@ package com.voiceportal.launcher;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.webkit.WebSettings;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.io.InputStream;
@@ -21,6 +22,18 @@ public class AppConfig {
     public String devCommand;
     public String voicePortalMode;
     public int idleTimeoutMin;  // 0 = never stop
+    public String cacheMode = CACHE_NO_CACHE;  // WebView HTTP cache policy, see webCacheMode()
+    public boolean assetCache = false;         // serve hashed build assets from AssetCache
+    public String serveMode = SERVE_DEV;       // "dev" runs devCommand, "static" serves staticDir
+    public String staticDir = "dist";          // build output, relative to projectPath
+    public boolean isolated = false;           // own process, see IsolatedWebViewActivity
+
+    public static final String SERVE_DEV = "dev";
+    public static final String SERVE_STATIC = "static";
+
+    public static final String CACHE_NO_CACHE = "no-cache";
+    public static final String CACHE_DEFAULT = "default";
+    public static final String CACHE_FIRST = "cache-first";
 
     public AppConfig(String id, String name, String description,
                      String projectPath, int port, String devCommand,
@@ -46,6 +59,11 @@ public class AppConfig {
             obj.put("devCommand", devCommand);
             obj.put("voicePortalMode", voicePortalMode);
             obj.put("idleTimeoutMin", idleTimeoutMin);
+            obj.put("cacheMode", cacheMode);
+            obj.put("assetCache", assetCache);
+            obj.put("serveMode", serveMode);
+            obj.put("staticDir", staticDir);
+            obj.put("isolated", isolated);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -54,7 +72,7 @@ public class AppConfig {
 
     public static AppConfig fromJson(JSONObject obj) {
         try {
-            return new AppConfig(
+            AppConfig app = new AppConfig(
                 obj.getString("id"),
                 obj.getString("name"),
                 obj.optString("description", ""),
@@ -64,12 +82,61 @@ public class AppConfig {
                 obj.optString("voicePortalMode", "default"),
                 obj.optInt("idleTimeoutMin", 60)
             );
+            app.cacheMode = normalizeCacheMode(obj.optString("cacheMode", CACHE_NO_CACHE));
+            app.assetCache = obj.optBoolean("assetCache", false);
+            app.serveMode = SERVE_STATIC.equals(obj.optString("serveMode")) ? SERVE_STATIC : SERVE_DEV;
+            app.staticDir = obj.optString("staticDir", "dist");
+            app.isolated = obj.optBoolean("isolated", false);
+            return app;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    public static String normalizeCacheMode(String mode) {
+        if (CACHE_DEFAULT.equals(mode) || CACHE_FIRST.equals(mode)) return mode;
+        return CACHE_NO_CACHE;
+    }
+
+    /**
+     * WebSettings cache mode: "no-cache" always revalidates (dev servers with HMR),
+     * "default" honours Cache-Control, "cache-first" uses any cached copy, even
+     * stale, before the network (production builds, offline while restarting).
+     */
+    public int webCacheMode() {
+        if (CACHE_DEFAULT.equals(cacheMode)) return WebSettings.LOAD_DEFAULT;
+        if (CACHE_FIRST.equals(cacheMode)) return WebSettings.LOAD_CACHE_ELSE_NETWORK;
+        return WebSettings.LOAD_NO_CACHE;
+    }
+
+    public boolean isStatic() {
+        return SERVE_STATIC.equals(serveMode);
+    }
+
+    /** URL the WebView opens for this app. */
+    public String launchUrl() {
+        return isStatic() ? StaticSite.siteUrl(id) : "http://127.0.0.1:" + port;
+    }
+
+    /** Find an app by id, or null. */
+    public static AppConfig findById(Context context, String id) {
+        List<AppConfig> apps = loadAll(context);
+        for (int i = 0; i < apps.size(); i++) {
+            if (apps.get(i).id.equals(id)) return apps.get(i);
+        }
+        return null;
+    }
+
+    /** Find an app by port, or null. */
+    public static AppConfig findByPort(Context context, int port) {
+        List<AppConfig> apps = loadAll(context);
+        for (int i = 0; i < apps.size(); i++) {
+            if (apps.get(i).port == port) return apps.get(i);
+        }
+        return null;
+    }
+
     /** Load all apps. First run seeds from assets, then always reads from SharedPreferences. */
     public static List<AppConfig> loadAll(Context context) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
@@ -0,0 +1,245 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Disk cache for immutable build assets (Vite/webpack content-hashed files like
+ * /assets/index-B3xk9a_Q.js), served from WebViewClient.shouldInterceptRequest.
+ * A hit never touches the dev server, so production builds open while their
+ * server is still restarting. Only hashed file names are intercepted; everything
+ * else goes through the WebView's own network stack untouched.
+ *
+ * Entries are files named by SHA-1 of the URL: a small header (mime, charset)
+ * followed by the body. Size is bounded by MAX_BYTES; least recently used
+ * entries (file mtime, bumped on every hit) are evicted first.
+ */
+public class AssetCache {
+    private static final String TAG = "AssetCache";
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_ENTRY_BYTES = 8L * 1024 * 1024;
+    private static final int TIMEOUT_MS = 5000;
+
+    // name-<hash>.ext under a build output dir, as emitted by Vite/Rollup/webpack/Next. The
+    // hash is 8-20 url-safe chars with at least one digit, so dev sources like
+    // app-navigation.css or jquery.validate.js don't pass for immutable files.
+    private static final Pattern HASHED = Pattern.compile(
+        ".*/(assets|static|dist|build|_next)/(.*/)?[^/]*[.-](?=[A-Za-z_-]*[0-9])[A-Za-z0-9_-]{8,20}"
+        + "\\.(js|mjs|css|woff2?|ttf|otf|png|jpe?g|gif|svg|webp|avif|wasm|json)$");
+
+    private static final Map<String, String> MIME = new HashMap<>();
+    static {
+        MIME.put("js", "text/javascript");
+        MIME.put("mjs", "text/javascript");
+        MIME.put("css", "text/css");
+        MIME.put("json", "application/json");
+        MIME.put("svg", "image/svg+xml");
+        MIME.put("wasm", "application/wasm");
+        MIME.put("woff", "font/woff");
+        MIME.put("woff2", "font/woff2");
+    }
+
+    private static AssetCache instance;
+
+    private final File dir;
+    private long totalBytes = -1;   // computed lazily
+
+    public static synchronized AssetCache get(Context context) {
+        if (instance == null) {
+            instance = new AssetCache(new File(context.getCacheDir(), "asset-cache"));
+        }
+        return instance;
+    }
+
+    private AssetCache(File dir) {
+        this.dir = dir;
+        dir.mkdirs();
+    }
+
+    /** True for requests this cache handles: local GETs of content-hashed files. */
+    public static boolean isCacheable(WebResourceRequest request) {
+        if (!"GET".equals(request.getMethod())) return false;
+        String host = request.getUrl().getHost();
+        if (!"127.0.0.1".equals(host) && !"localhost".equals(host)) return false;
+        String path = request.getUrl().getPath();
+        return path != null && HASHED.matcher(path).matches();
+    }
+
+    /**
+     * Serve from disk, or fetch, store and serve. Returns null when the asset is
+     * neither cached nor fetchable, letting the WebView report the error itself.
+     * Called on WebView's IO thread.
+     */
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        File file = new File(dir, key(url));
+        if (file.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(new FileInputStream(file));
+                String mime = in.readUTF();
+                String charset = in.readUTF();
+                file.setLastModified(System.currentTimeMillis());
+                return response(mime, charset.isEmpty() ? null : charset, in);
+            } catch (Exception e) {
+                Log.w(TAG, "Corrupt entry for " + url + ", refetching");
+                file.delete();
+            }
+        }
+        return fetchAndStore(url, file, request.getRequestHeaders());
+    }
+
+    private WebResourceResponse fetchAndStore(String url, File file, Map<String, String> headers) {
+        HttpURLConnection conn = null;
+        boolean streaming = false;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(TIMEOUT_MS);
+            conn.setReadTimeout(TIMEOUT_MS);
+            for (Map.Entry<String, String> h : headers.entrySet()) {
+                // Let HttpURLConnection negotiate (and undo) compression itself
+                if ("Accept-Encoding".equalsIgnoreCase(h.getKey())) continue;
+                conn.setRequestProperty(h.getKey(), h.getValue());
+            }
+            if (conn.getResponseCode() != 200) return null;
+
+            String contentType = conn.getContentType();
+            String mime = mimeFor(url, contentType);
+            String charset = charsetOf(contentType);
+            InputStream in = conn.getInputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(Math.max(conn.getContentLength(), 8192));
+            byte[] buf = new byte[16384];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                body.write(buf, 0, n);
+                if (body.size() > MAX_ENTRY_BYTES) {
+                    // Too big to cache: serve what we have plus the rest of the response
+                    streaming = true;
+                    return response(mime, charset.isEmpty() ? null : charset,
+                        new SequenceInputStream(new ByteArrayInputStream(body.toByteArray()), in));
+                }
+            }
+            in.close();
+            byte[] data = body.toByteArray();
+            store(file, mime, charset, data);
+            return response(mime, charset.isEmpty() ? null : charset, new ByteArrayInputStream(data));
+        } catch (Exception e) {
+            Log.d(TAG, "Fetch failed for " + url + ": " + e.getMessage());
+            return null;
+        } finally {
+            // A streamed response still reads from conn; closing its stream releases it
+            if (conn != null && !streaming) conn.disconnect();
+        }
+    }
+
+    private synchronized void store(File file, String mime, String charset, byte[] data) {
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+            out.writeUTF(mime);
+            out.writeUTF(charset);
+            out.write(data);
+            out.close();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return;
+            }
+            if (totalBytes < 0) totalBytes = computeSize();
+            else totalBytes += file.length();
+            if (totalBytes > MAX_BYTES) evict();
+        } catch (Exception e) {
+            Log.w(TAG, "Store failed: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /** Delete least recently used entries until the cache is at 90% of MAX_BYTES. */
+    private void evict() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, new OldestFirst());
+        long target = MAX_BYTES * 9 / 10;
+        int removed = 0;
+        for (int i = 0; i < files.length && totalBytes > target; i++) {
+            long len = files[i].length();
+            if (files[i].delete()) {
+                totalBytes -= len;
+                removed++;
+            }
+        }
+        Log.d(TAG, "Evicted " + removed + " entries, " + (totalBytes / 1024) + " KB left");
+    }
+
+    private long computeSize() {
+        long sum = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) sum += f.length();
+        }
+        return sum;
+    }
+
+    private static WebResourceResponse response(String mime, String charset, InputStream body) {
+        WebResourceResponse r = new WebResourceResponse(mime, charset, body);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "public, max-age=31536000, immutable");
+        headers.put("Access-Control-Allow-Origin", "*");
+        r.setResponseHeaders(headers);
+        return r;
+    }
+
+    private static String mimeFor(String url, String contentType) {
+        if (contentType != null && !contentType.isEmpty()) {
+            int semi = contentType.indexOf(';');
+            return (semi >= 0 ? contentType.substring(0, semi) : contentType).trim();
+        }
+        String ext = url.substring(url.lastIndexOf('.') + 1);
+        String mime = MIME.get(ext);
+        return mime != null ? mime : "application/octet-stream";
+    }
+
+    private static String charsetOf(String contentType) {
+        if (contentType == null) return "";
+        int i = contentType.toLowerCase(java.util.Locale.US).indexOf("charset=");
+        if (i < 0) return "";
+        String cs = contentType.substring(i + 8).trim();
+        int semi = cs.indexOf(';');
+        return (semi >= 0 ? cs.substring(0, semi) : cs).replace("\"", "").trim();
+    }
+
+    private static String key(String url) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static class OldestFirst implements Comparator<File> {
+        @Override
+        public int compare(File a, File b) {
+            return Long.compare(a.lastModified(), b.lastModified());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.voiceportal.launcher;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Environment;
+import android.provider.MediaStore;
+import android.util.Log;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A multi-file save into one Download/ folder, published all at once. All items
+ * are inserted as IS_PENDING in a single applyBatch, their contents are written
+ * independently (inline text on NativeIo, blobs POSTed through UploadServer), and
+ * commit() flips IS_PENDING for every item in a second applyBatch, only when all
+ * of them were written. abort() deletes them. Until then nothing is visible to
+ * other apps, and MediaStore reaps pending leftovers if we die midway. A batch
+ * untouched for BATCH_TTL_MS (page gone without commit or abort) is aborted.
+ */
+public class DownloadBatch {
+    private static final String TAG = "DownloadBatch";
+    private static final long INLINE_WAIT_MS = 60000;
+    private static final long BATCH_TTL_MS = 30 * 60 * 1000;
+    // Inline items are written by at most this many pool tasks, however many there are
+    private static final int INLINE_TASKS = 2;
+
+    private static final Map<String, DownloadBatch> batches = new HashMap<>();
+
+    public final String id;
+    private final Context context;
+    private final String sub;
+    private final String relativePath;
+    private final String[] names;
+    private final Uri[] uris;
+    private final boolean[] written;
+    private final boolean[] uploading;
+    private boolean publishing;   // commit() passed its checks; no more writes
+    private final String[] errors;
+    private volatile CountDownLatch inline = new CountDownLatch(0);
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private DownloadBatch(Context context, String sub, String relativePath, String[] names, Uri[] uris) {
+        this.id = UUID.randomUUID().toString().replace("-", "");
+        this.context = context.getApplicationContext();
+        this.sub = sub;
+        this.relativePath = relativePath;
+        this.names = names;
+        this.uris = uris;
+        this.written = new boolean[names.length];
+        this.uploading = new boolean[names.length];
+        this.errors = new String[names.length];
+    }
+
+    /** Insert all items as pending in one round trip. */
+    public static DownloadBatch create(Context context, String subPath, String[] names, String[] mimeTypes)
+            throws Exception {
+        String sub = DownloadsWriter.sanitizeSubPath(subPath);
+        String relativePath = sub.isEmpty() ? Environment.DIRECTORY_DOWNLOADS
+            : Environment.DIRECTORY_DOWNLOADS + "/" + sub;
+        Uri collection = MediaStore.Downloads.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Downloads.DISPLAY_NAME, names[i]);
+            values.put(MediaStore.Downloads.MIME_TYPE, mimeTypes[i]);
+            values.put(MediaStore.Downloads.RELATIVE_PATH, relativePath);
+            values.put(MediaStore.Downloads.IS_PENDING, 1);
+            ops.add(ContentProviderOperation.newInsert(collection).withValues(values).build());
+        }
+        ContentProviderResult[] results = context.getContentResolver().applyBatch(MediaStore.AUTHORITY, ops);
+        Uri[] uris = new Uri[names.length];
+        for (int i = 0; i < results.length; i++) uris[i] = results[i].uri;
+
+        expireStale();
+        DownloadBatch batch = new DownloadBatch(context, sub, relativePath, names, uris);
+        synchronized (batches) {
+            batches.put(batch.id, batch);
+        }
+        return batch;
+    }
+
+    public static DownloadBatch find(String id) {
+        DownloadBatch batch;
+        synchronized (batches) {
+            batch = batches.get(id);
+        }
+        if (batch != null) batch.lastUsed = System.currentTimeMillis();
+        return batch;
+    }
+
+    /** Abort batches the page abandoned, deleting their pending rows. */
+    private static void expireStale() {
+        long now = System.currentTimeMillis();
+        ArrayList<DownloadBatch> stale = new ArrayList<>();
+        synchronized (batches) {
+            for (DownloadBatch b : batches.values()) {
+                if (now - b.lastUsed > BATCH_TTL_MS && b.claimIdle()) stale.add(b);
+            }
+        }
+        for (int i = 0; i < stale.size(); i++) {
+            Log.w(TAG, "Batch " + stale.get(i).id + " expired uncommitted, aborting");
+            stale.get(i).abort();
+        }
+    }
+
+    /** Nothing in flight: lock the batch against further writes and commit, and say so. */
+    private synchronized boolean claimIdle() {
+        if (publishing || inline.getCount() > 0) return false;
+        for (boolean u : uploading) {
+            if (u) return false;
+        }
+        publishing = true;
+        return true;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Writer for one item; close its stream and call markWritten() or markFailed() when
+     * done. Truncates, so a shorter retry leaves no old tail.
+     */
+    public DownloadsWriter.Pending open(int index) throws Exception {
+        synchronized (this) {
+            if (publishing) throw new IllegalStateException("batch is being committed");
+            lastUsed = System.currentTimeMillis();
+            // Whatever an earlier attempt wrote is being overwritten
+            uploading[index] = true;
+            written[index] = false;
+        }
+        OutputStream os = context.getContentResolver().openOutputStream(uris[index], "wt");
+        if (os == null) throw new RuntimeException("openOutputStream returned null");
+        return new DownloadsWriter.Pending(uris[index], os, relativePath + "/" + names[index], sub);
+    }
+
+    public synchronized void markWritten(int index) {
+        uploading[index] = false;
+        written[index] = true;
+        errors[index] = null;
+    }
+
+    /** The item may be partly written now, so it no longer counts as written. */
+    public synchronized void markFailed(int index, String error) {
+        if (publishing) return;   // a rejected late upload; the item was not touched
+        uploading[index] = false;
+        written[index] = false;
+        errors[index] = error;
+    }
+
+    /**
+     * Write small inline items (text) on the I/O pool; commit() waits for them. They are
+     * split over at most INLINE_TASKS sequential tasks, so hundreds of entries don't flood
+     * the pool's bounded queue; if even that is full, a chunk gets a thread of its own.
+     */
+    public void writeInline(int[] indexes, byte[][] contents) {
+        inline = new CountDownLatch(indexes.length);
+        int tasks = Math.min(INLINE_TASKS, indexes.length);
+        for (int t = 0; t < tasks; t++) {
+            int from = indexes.length * t / tasks;
+            int to = indexes.length * (t + 1) / tasks;
+            InlineWrite task = new InlineWrite(indexes, contents, from, to);
+            if (!NativeIo.submit(task)) {
+                Thread thread = new Thread(task, "vp-batch-inline");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    /** Publish every item, or nothing: "Download/... (n files)" or "ERROR: ...". */
+    public String commit() {
+        try {
+            if (!inline.await(INLINE_WAIT_MS, TimeUnit.MILLISECONDS)) return "ERROR: inline writes timed out";
+        } catch (InterruptedException e) {
+            return "ERROR: interrupted";
+        }
+        synchronized (this) {
+            int busy = 0;
+            for (int i = 0; i < names.length; i++) {
+                if (uploading[i]) busy++;
+            }
+            if (busy > 0) return "ERROR: " + busy + " uploads still in progress";
+            int missing = 0;
+            String firstError = null;
+            for (int i = 0; i < names.length; i++) {
+                if (!written[i]) {
+                    missing++;
+                    if (firstError == null && errors[i] != null) firstError = names[i] + ": " + errors[i];
+                }
+            }
+            if (missing > 0) {
+                return "ERROR: " + missing + " of " + names.length + " files not written"
+                    + (firstError != null ? " (" + firstError + ")" : "");
+            }
+            publishing = true;
+        }
+        try {
+            ArrayList<ContentProviderOperation> ops = new ArrayList<>(uris.length);
+            for (Uri uri : uris) {
+                ops.add(ContentProviderOperation.newUpdate(uri)
+                    .withValue(MediaStore.Downloads.IS_PENDING, 0).build());
+            }
+            context.getContentResolver().applyBatch(MediaStore.AUTHORITY, ops);
+        } catch (Exception e) {
+            synchronized (this) {
+                publishing = false;
+            }
+            Log.e(TAG, "Publish failed", e);
+            return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        forget();
+        DownloadIndex.invalidateDir(sub);
+        Log.d(TAG, "Published " + names.length + " files to " + relativePath);
+        return relativePath + " (" + names.length + " files)";
+    }
+
+    /** Delete every item of the batch. */
+    public void abort() {
+        forget();
+        try {
+            ArrayList<ContentProviderOperation> ops = new ArrayList<>(uris.length);
+            for (Uri uri : uris) ops.add(ContentProviderOperation.newDelete(uri).build());
+            context.getContentResolver().applyBatch(MediaStore.AUTHORITY, ops);
+        } catch (Exception e) {
+            Log.w(TAG, "Abort cleanup failed: " + e.getMessage());
+        }
+    }
+
+    private void forget() {
+        synchronized (batches) {
+            batches.remove(id);
+        }
+    }
+
+    /** Writes inline items [from, to) one after another. */
+    private class InlineWrite implements Runnable {
+        private final int[] indexes;
+        private final byte[][] contents;
+        private final int from;
+        private final int to;
+
+        InlineWrite(int[] indexes, byte[][] contents, int from, int to) {
+            this.indexes = indexes;
+            this.contents = contents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            ContentResolver resolver = context.getContentResolver();
+            for (int i = from; i < to; i++) {
+                int index = indexes[i];
+                try {
+                    OutputStream os = resolver.openOutputStream(uris[index], "wt");
+                    if (os == null) throw new RuntimeException("openOutputStream returned null");
+                    try {
+                        os.write(contents[i]);
+                    } finally {
+                        os.close();
+                    }
+                    markWritten(index);
+                } catch (Exception e) {
+                    Log.w(TAG, "Inline write of " + names[index] + " failed: " + e.getMessage());
+                    markFailed(index, e.getMessage());
+                } finally {
+                    inline.countDown();
+                }
+            }
+        }
+    }
+}
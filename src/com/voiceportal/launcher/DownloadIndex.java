@@ -0,0 +1,332 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Environment;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.provider.MediaStore;
+import android.util.Log;
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.json.JSONObject;
+
+/**
+ * In-memory index of the Download/ tree for VPNative.listFiles. A directory is
+ * scanned once (one attribute read per entry), then served from memory until a
+ * FileObserver on it, a MediaStore Downloads change or our own DownloadsWriter
+ * says it changed; only that directory is rescanned, lazily, on the next request.
+ *
+ * Directories are keyed by their path relative to Download/ ("" is the root).
+ * At most MAX_WATCHED directories are cached, since each holds an inotify watch.
+ */
+public class DownloadIndex {
+    private static final String TAG = "DownloadIndex";
+    private static final int MAX_WATCHED = 512;
+    private static final int MAX_DEPTH = 16;
+    private static final int OBSERVED_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+        | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE
+        | FileObserver.ATTRIB | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    private static DownloadIndex instance;
+
+    private final File root;
+    private final Map<String, Dir> dirs = new HashMap<>();
+    // Observers of directories being scanned right now, at most one per directory
+    private final Map<String, DirObserver> scanning = new HashMap<>();
+
+    private static class Item {
+        final String name;
+        final long size;
+        final long mtime;
+        final boolean isDir;
+
+        Item(String name, long size, long mtime, boolean isDir) {
+            this.name = name;
+            this.size = size;
+            this.mtime = mtime;
+            this.isDir = isDir;
+        }
+    }
+
+    private static class Dir {
+        final List<Item> items;
+        final FileObserver observer;
+        String json;   // listFiles() rendering, built on first use
+
+        Dir(List<Item> items, FileObserver observer) {
+            this.items = items;
+            this.observer = observer;
+        }
+    }
+
+    public static synchronized DownloadIndex get(Context context) {
+        if (instance == null) {
+            instance = new DownloadIndex(
+                Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS));
+            instance.watchMediaStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Drop a directory's cached listing, e.g. after writing into it. No-op before first use. */
+    public static void invalidateDir(String relDir) {
+        DownloadIndex index;
+        synchronized (DownloadIndex.class) {
+            index = instance;
+        }
+        if (index != null) index.invalidate(relDir == null ? "" : relDir);
+    }
+
+    private DownloadIndex(File root) {
+        this.root = root;
+    }
+
+    /** Same JSON array as the old listFiles: [{"name","size","mtime","isDir"}, ...] or "ERROR: ...". */
+    public String listJson(String subPath) {
+        String rel = normalize(subPath);
+        synchronized (this) {
+            Dir dir = dirs.get(rel);
+            if (dir != null && dir.json != null) return dir.json;
+        }
+        Object listing = listing(rel);
+        if (listing instanceof String) return (String) listing;
+        @SuppressWarnings("unchecked")
+        List<Item> items = (List<Item>) listing;
+        StringBuilder sb = new StringBuilder(64 + items.size() * 64);
+        sb.append('[');
+        for (int i = 0; i < items.size(); i++) {
+            Item it = items.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":").append(JSONObject.quote(it.name))
+                .append(",\"size\":").append(it.size)
+                .append(",\"mtime\":").append(it.mtime)
+                .append(",\"isDir\":").append(it.isDir).append('}');
+        }
+        String json = sb.append(']').toString();
+        synchronized (this) {
+            Dir dir = dirs.get(rel);
+            if (dir != null && dir.items == items) dir.json = json;
+        }
+        return json;
+    }
+
+    /**
+     * Paged, optionally recursive and glob-filtered listing:
+     * {"items":[{"path","name","size","mtime","isDir"}], "total": n, "offset": n, "next": n|-1}.
+     * path is relative to subPath; the glob matches it (* and ? stay within a
+     * segment, ** crosses directories), case-insensitively. limit <= 0 means all.
+     */
+    public String query(String subPath, boolean recursive, String glob, int offset, int limit) {
+        String rel = normalize(subPath);
+        Pattern pattern = glob == null || glob.isEmpty() ? null : globToRegex(glob);
+        List<String> paths = new ArrayList<>();
+        List<Item> matches = new ArrayList<>();
+        String err = collect(rel, "", recursive, 0, pattern, paths, matches);
+        if (err != null) return err;
+
+        int total = matches.size();
+        int from = Math.max(0, Math.min(offset, total));
+        int to = limit <= 0 ? total : (int) Math.min((long) from + limit, total);
+        StringBuilder sb = new StringBuilder(64 + (to - from) * 96);
+        sb.append("{\"items\":[");
+        for (int i = from; i < to; i++) {
+            Item it = matches.get(i);
+            if (i > from) sb.append(',');
+            sb.append("{\"path\":").append(JSONObject.quote(paths.get(i)))
+                .append(",\"name\":").append(JSONObject.quote(it.name))
+                .append(",\"size\":").append(it.size)
+                .append(",\"mtime\":").append(it.mtime)
+                .append(",\"isDir\":").append(it.isDir).append('}');
+        }
+        sb.append("],\"total\":").append(total)
+            .append(",\"offset\":").append(from)
+            .append(",\"next\":").append(to < total ? to : -1).append('}');
+        return sb.toString();
+    }
+
+    private String collect(String rel, String prefix, boolean recursive, int depth, Pattern pattern,
+                           List<String> paths, List<Item> out) {
+        Object listing = listing(rel);
+        if (listing instanceof String) return depth == 0 ? (String) listing : null;
+        @SuppressWarnings("unchecked")
+        List<Item> items = (List<Item>) listing;
+        for (int i = 0; i < items.size(); i++) {
+            Item it = items.get(i);
+            String path = prefix.isEmpty() ? it.name : prefix + "/" + it.name;
+            if (pattern == null || pattern.matcher(path).matches()) {
+                paths.add(path);
+                out.add(it);
+            }
+            if (recursive && it.isDir && depth < MAX_DEPTH) {
+                collect(rel.isEmpty() ? it.name : rel + "/" + it.name, path, true, depth + 1,
+                    pattern, paths, out);
+            }
+        }
+        return null;
+    }
+
+    /** Cached items of a directory, scanning it if needed; an "ERROR: ..." string on failure. */
+    private Object listing(String rel) {
+        synchronized (this) {
+            Dir dir = dirs.get(rel);
+            if (dir != null) return dir.items;
+        }
+        File file = rel.isEmpty() ? root : new File(root, rel);
+        if (!file.exists()) return "ERROR: Not found: " + file.getAbsolutePath();
+        if (!file.isDirectory()) return "ERROR: Not a directory: " + file.getAbsolutePath();
+
+        // Watch before scanning: a change during the scan must not leave a stale listing cached
+        DirObserver observer = null;
+        synchronized (this) {
+            if (dirs.size() + scanning.size() < MAX_WATCHED && !dirs.containsKey(rel)
+                    && !scanning.containsKey(rel)) {
+                observer = new DirObserver(file, rel);
+                scanning.put(rel, observer);
+                observer.startWatching();
+            }
+        }
+
+        List<Item> items = new ArrayList<>();
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath());
+            try {
+                for (Path p : stream) {
+                    BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                    items.add(new Item(p.getFileName().toString(), a.size(),
+                        a.lastModifiedTime().toMillis(), a.isDirectory()));
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (Exception e) {
+            if (observer != null) dropScan(rel, observer);
+            return "ERROR: Cannot list (permission?)";
+        }
+
+        if (observer != null) {
+            synchronized (this) {
+                if (scanning.get(rel) == observer && !observer.fired) {
+                    scanning.remove(rel);
+                    dirs.put(rel, new Dir(items, observer));
+                    return items;
+                }
+            }
+            // Changed while we scanned (or invalidated): serve this listing once, don't cache it
+            dropScan(rel, observer);
+        }
+        return items;
+    }
+
+    private synchronized void dropScan(String rel, DirObserver observer) {
+        if (scanning.get(rel) == observer) scanning.remove(rel);
+        observer.stopWatching();
+    }
+
+    private synchronized void invalidate(String rel) {
+        DirObserver pending = scanning.get(rel);
+        if (pending != null) pending.fired = true;
+        Dir dir = dirs.remove(rel);
+        if (dir != null) dir.observer.stopWatching();
+    }
+
+    /** Forget rel and everything below it (a moved/deleted dir takes its subtree along). */
+    private synchronized void invalidateTree(String rel) {
+        for (Map.Entry<String, DirObserver> e : scanning.entrySet()) {
+            if (rel.isEmpty() || e.getKey().equals(rel) || e.getKey().startsWith(rel + "/")) {
+                e.getValue().fired = true;
+            }
+        }
+        Iterator<Map.Entry<String, Dir>> it = dirs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Dir> e = it.next();
+            if (rel.isEmpty() || e.getKey().equals(rel) || e.getKey().startsWith(rel + "/")) {
+                e.getValue().observer.stopWatching();
+                it.remove();
+            }
+        }
+    }
+
+    /** Writes through MediaStore (other apps, or FUSE paths inotify misses) drop everything. */
+    private void watchMediaStore(Context context) {
+        HandlerThread thread = new HandlerThread("vp-download-index");
+        thread.start();
+        context.getContentResolver().registerContentObserver(
+            MediaStore.Downloads.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY), true,
+            new MediaStoreObserver(new Handler(thread.getLooper())));
+    }
+
+    private static String normalize(String subPath) {
+        return DownloadsWriter.sanitizeSubPath(subPath);
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder re = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    re.append(".*");
+                    i++;
+                } else {
+                    re.append("[^/]*");
+                }
+            } else if (c == '?') {
+                re.append("[^/]");
+            } else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+                re.append('\\').append(c);
+            } else {
+                re.append(c);
+            }
+        }
+        return Pattern.compile(re.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    private class DirObserver extends FileObserver {
+        private final String rel;
+        volatile boolean fired;   // any event since startWatching
+
+        DirObserver(File dir, String rel) {
+            super(dir, OBSERVED_EVENTS);
+            this.rel = rel;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            fired = true;
+            if ((event & (DELETE_SELF | MOVE_SELF)) != 0) {
+                invalidateTree(rel);
+            } else if ((event & (DELETE | MOVED_FROM)) != 0 && path != null) {
+                invalidate(rel);
+                invalidateTree(rel.isEmpty() ? path : rel + "/" + path);
+            } else {
+                invalidate(rel);
+            }
+        }
+    }
+
+    private class MediaStoreObserver extends ContentObserver {
+        MediaStoreObserver(Handler handler) {
+            super(handler);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            Log.d(TAG, "MediaStore Downloads changed, dropping index");
+            invalidateTree("");
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.voiceportal.launcher;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Environment;
+import android.provider.MediaStore;
+import android.util.Log;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes files into the public Download/ collection through MediaStore. Shared by
+ * VPNative.saveFile (whole byte[]) and UploadServer (streamed): open() inserts a
+ * pending item, the caller writes to its stream, commit() publishes it.
+ * writeInPlace() instead overwrites an existing file of the same name.
+ */
+public class DownloadsWriter {
+    private static final String TAG = "DownloadsWriter";
+    private static final int HASH_ENTRIES = 256;
+
+    // SHA-256 of what we last wrote to (or read from) an item, keyed by content URI. Only
+    // trusted while the row's SIZE and DATE_MODIFIED still match: another app may have
+    // edited the file since.
+    private static final Map<String, KnownHash> hashes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class KnownHash {
+        final byte[] hash;
+        final long size;
+        final long modified;
+
+        KnownHash(byte[] hash, long size, long modified) {
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    /** An item being written; invisible to other apps until commit(). */
+    public static class Pending {
+        public final OutputStream out;
+        public final String path;   // Download/<sub>/<name>, returned to JS
+        final Uri item;
+        final String sub;
+        long written;
+
+        Pending(Uri item, OutputStream out, String path, String sub) {
+            this.item = item;
+            this.out = out;
+            this.path = path;
+            this.sub = sub;
+        }
+    }
+
+    /** Write a whole file; returns its Download/... path. */
+    public static String write(Context ctx, String filename, String mimeType, String subPath,
+                               byte[] data) throws Exception {
+        Pending p = open(ctx, filename, mimeType, subPath);
+        try {
+            p.out.write(data);
+            p.written = data.length;
+        } catch (Exception e) {
+            abort(ctx, p);
+            throw e;
+        }
+        return commit(ctx, p);
+    }
+
+    /**
+     * Overwrite Download/<sub>/<filename> if it exists (same row, no "name (1).ext"
+     * duplicate), else create it. With skipUnchanged the write is skipped when the
+     * content hash matches what the file already holds. Returns the Download/... path.
+     */
+    public static String writeInPlace(Context ctx, String filename, String mimeType, String subPath,
+                                      byte[] data, boolean skipUnchanged) throws Exception {
+        String cleanSub = sanitizeSubPath(subPath);
+        String relativePath = Environment.DIRECTORY_DOWNLOADS + (cleanSub.isEmpty() ? "" : "/" + cleanSub);
+        ContentResolver resolver = ctx.getContentResolver();
+        Uri collection = MediaStore.Downloads.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+
+        Uri item = null;
+        long size = -1;
+        long modified = -1;
+        // MediaStore keeps RELATIVE_PATH with a trailing slash
+        Cursor c = resolver.query(collection,
+            new String[]{MediaStore.Downloads._ID, MediaStore.Downloads.SIZE,
+                MediaStore.Downloads.DATE_MODIFIED},
+            MediaStore.Downloads.RELATIVE_PATH + "=? AND " + MediaStore.Downloads.DISPLAY_NAME + "=?",
+            new String[]{relativePath + "/", filename}, null);
+        if (c != null) {
+            try {
+                if (c.moveToFirst()) {
+                    item = android.content.ContentUris.withAppendedId(collection, c.getLong(0));
+                    size = c.isNull(1) ? -1 : c.getLong(1);
+                    modified = c.isNull(2) ? -1 : c.getLong(2);
+                }
+            } finally {
+                c.close();
+            }
+        }
+        if (item == null) {
+            String path = write(ctx, filename, mimeType, subPath, data);
+            Uri created = findUri(resolver, collection, relativePath, filename);
+            if (created != null) rememberHash(resolver, created, sha256(data));
+            return path;
+        }
+
+        byte[] hash = sha256(data);
+        if (skipUnchanged && size == data.length
+                && Arrays.equals(hash, storedHash(resolver, item, size, modified))) {
+            Log.d(TAG, "Unchanged, skipped " + relativePath + "/" + filename);
+            return relativePath + "/" + filename;
+        }
+
+        // "wt" truncates: a shorter version must not keep the old tail
+        OutputStream os = resolver.openOutputStream(item, "wt");
+        if (os == null) throw new RuntimeException("openOutputStream returned null");
+        try {
+            os.write(data);
+        } finally {
+            os.close();
+        }
+        rememberHash(resolver, item, hash);
+        DownloadIndex.invalidateDir(cleanSub);
+        Log.d(TAG, "Overwrote " + relativePath + "/" + filename + " (" + data.length + " bytes)");
+        return relativePath + "/" + filename;
+    }
+
+    private static Uri findUri(ContentResolver resolver, Uri collection, String relativePath, String filename) {
+        Cursor c = resolver.query(collection, new String[]{MediaStore.Downloads._ID},
+            MediaStore.Downloads.RELATIVE_PATH + "=? AND " + MediaStore.Downloads.DISPLAY_NAME + "=?",
+            new String[]{relativePath + "/", filename}, null);
+        if (c == null) return null;
+        try {
+            return c.moveToFirst() ? android.content.ContentUris.withAppendedId(collection, c.getLong(0)) : null;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Hash of the item's current content: remembered if the row's size and mtime are the
+     * ones we saw when remembering it, else read back once (reads don't wear flash).
+     */
+    private static byte[] storedHash(ContentResolver resolver, Uri item, long size, long modified) {
+        synchronized (hashes) {
+            KnownHash known = hashes.get(item.toString());
+            if (known != null && known.size == size && known.modified == modified && modified >= 0) {
+                return known.hash;
+            }
+        }
+        try {
+            InputStream in = resolver.openInputStream(item);
+            if (in == null) return null;
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[65536];
+            int n;
+            try {
+                while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+            } finally {
+                in.close();
+            }
+            byte[] h = md.digest();
+            remember(item, h, size, modified);
+            return h;
+        } catch (Exception e) {
+            Log.w(TAG, "Hash read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Remember what we just wrote, under the row's size and mtime after the write. */
+    private static void rememberHash(ContentResolver resolver, Uri item, byte[] hash) {
+        Cursor c = resolver.query(item,
+            new String[]{MediaStore.Downloads.SIZE, MediaStore.Downloads.DATE_MODIFIED}, null, null, null);
+        if (c == null) return;
+        try {
+            if (c.moveToFirst() && !c.isNull(0) && !c.isNull(1)) {
+                remember(item, hash, c.getLong(0), c.getLong(1));
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    private static void remember(Uri item, byte[] hash, long size, long modified) {
+        synchronized (hashes) {
+            hashes.put(item.toString(), new KnownHash(hash, size, modified));
+            if (hashes.size() > HASH_ENTRIES) hashes.remove(hashes.keySet().iterator().next());
+        }
+    }
+
+    private static byte[] sha256(byte[] data) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    public static Pending open(Context ctx, String filename, String mimeType, String subPath) throws Exception {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Downloads.DISPLAY_NAME, filename);
+        values.put(MediaStore.Downloads.MIME_TYPE, mimeType);
+
+        // MediaStore RELATIVE_PATH expects paths rooted at Download/ etc.
+        // For nested folders, append the sanitized sub-path.
+        String relativePath = Environment.DIRECTORY_DOWNLOADS;
+        String cleanSub = sanitizeSubPath(subPath);
+        if (!cleanSub.isEmpty()) {
+            relativePath = relativePath + "/" + cleanSub;
+        }
+        values.put(MediaStore.Downloads.RELATIVE_PATH, relativePath);
+        values.put(MediaStore.Downloads.IS_PENDING, 1);
+
+        ContentResolver resolver = ctx.getContentResolver();
+        Uri collection = MediaStore.Downloads.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        Uri item = resolver.insert(collection, values);
+        if (item == null) throw new RuntimeException("MediaStore insert returned null");
+
+        OutputStream os = resolver.openOutputStream(item);
+        if (os == null) {
+            resolver.delete(item, null, null);
+            throw new RuntimeException("openOutputStream returned null");
+        }
+        return new Pending(item, os, relativePath + "/" + filename, cleanSub);
+    }
+
+    /** Count bytes written through p.out by the caller, for the log line. */
+    public static void addWritten(Pending p, long n) {
+        p.written += n;
+    }
+
+    /** Close the stream and publish the item; returns its Download/... path. */
+    public static String commit(Context ctx, Pending p) throws Exception {
+        p.out.flush();
+        p.out.close();
+        ContentValues clear = new ContentValues();
+        clear.put(MediaStore.Downloads.IS_PENDING, 0);
+        ctx.getContentResolver().update(p.item, clear, null, null);
+        // A listFiles right after the save must see the file, whatever the observers' timing
+        DownloadIndex.invalidateDir(p.sub);
+        Log.d(TAG, "Wrote " + p.written + " bytes to " + p.path);
+        return p.path;
+    }
+
+    /** Drop a half-written item. */
+    public static void abort(Context ctx, Pending p) {
+        try { p.out.close(); } catch (Exception ignore) {}
+        try {
+            ctx.getContentResolver().delete(p.item, null, null);
+        } catch (Exception e) {
+            Log.w(TAG, "Abort cleanup failed: " + e.getMessage());
+        }
+    }
+
+    // Sanitize a user-provided subPath to make it safe for MediaStore RELATIVE_PATH.
+    // Rules: strip leading/trailing slashes, replace Windows-invalid chars, drop ..
+    // segments, clamp total length. Returns empty string if the result is empty.
+    public static String sanitizeSubPath(String sub) {
+        if (sub == null) return "";
+        String cleaned = sub.trim();
+        // Replace invalid filesystem chars
+        cleaned = cleaned.replaceAll("[:*?\"<>|]", "_");
+        // Strip leading/trailing slashes + backslashes
+        cleaned = cleaned.replaceAll("^[/\\\\]+", "").replaceAll("[/\\\\]+$", "");
+        // Normalize backslashes to forward slashes
+        cleaned = cleaned.replace('\\', '/');
+        // Drop any ".." segments for safety
+        String[] parts = cleaned.split("/");
+        StringBuilder out = new StringBuilder();
+        for (String p : parts) {
+            String trimmed = p.trim();
+            if (trimmed.isEmpty()) continue;
+            if (trimmed.equals("..") || trimmed.equals(".")) continue;
+            if (out.length() > 0) out.append('/');
+            out.append(trimmed);
+        }
+        String result = out.toString();
+        // Clamp length to avoid MediaStore path errors
+        if (result.length() > 120) result = result.substring(0, 120);
+        return result;
+    }
+}
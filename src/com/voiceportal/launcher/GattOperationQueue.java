@@ -0,0 +1,292 @@
+package com.voiceportal.launcher;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.os.Handler;
+import android.util.Log;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Serializes GATT operations: Android allows one outstanding read/write/descriptor
+ * write/MTU request per connection and silently drops (or refuses) the rest.
+ *
+ * Operations run one at a time in priority order (FIFO within a priority), so a
+ * measurement trigger overtakes queued diagnostic reads. The running operation
+ * completes when the BluetoothGattCallback reports back through complete(); if
+ * that callback never comes, the timeout fails it and the queue moves on instead
+ * of stalling. Refused or failed operations are retried up to their retry count,
+ * then reported through Callback. Timed-out ones are retried only if repeating
+ * them is harmless: a command write may have reached the device, and sending
+ * it again would e.g. trigger a second measurement.
+ *
+ * Thread-safe: callers are the JS bridge thread, binder threads and handler.
+ */
+public class GattOperationQueue {
+    private static final String TAG = "GattQueue";
+    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+    private static final long RETRY_DELAY_MS = 50;
+
+    public static final int PRIORITY_COMMAND = 0;     // triggers, user writes
+    public static final int PRIORITY_SETUP = 1;       // MTU, notification enables
+    public static final int PRIORITY_DIAGNOSTIC = 2;  // readAllChars and friends
+
+    static final int READ = 0;
+    static final int WRITE = 1;
+    static final int ENABLE_NOTIFY = 2;
+    static final int MTU = 3;
+
+    /** Result of an operation, on whichever thread completed it. */
+    public interface Callback {
+        void onResult(Op op, boolean ok, String error);
+    }
+
+    public static class Op {
+        final int kind;
+        final BluetoothGattCharacteristic ch;
+        final byte[] value;
+        final int writeType;
+        final int mtu;
+        final int priority;
+        final long timeoutMs;
+        final int retries;
+        final boolean retryOnTimeout;
+        final Callback callback;
+        long seq;
+        int attempt;
+
+        private Op(int kind, BluetoothGattCharacteristic ch, byte[] value, int writeType, int mtu,
+                   int priority, long timeoutMs, int retries, boolean retryOnTimeout, Callback callback) {
+            this.kind = kind;
+            this.ch = ch;
+            this.value = value;
+            this.writeType = writeType;
+            this.mtu = mtu;
+            this.priority = priority;
+            this.timeoutMs = timeoutMs;
+            this.retries = retries;
+            this.retryOnTimeout = retryOnTimeout;
+            this.callback = callback;
+        }
+
+        public static Op read(BluetoothGattCharacteristic ch, int priority, Callback callback) {
+            return new Op(READ, ch, null, 0, 0, priority, 3000, 1, true, callback);
+        }
+
+        /** Command-priority writes are not repeated after a timeout (they may have been delivered). */
+        public static Op write(BluetoothGattCharacteristic ch, byte[] value, int writeType, int priority,
+                               Callback callback) {
+            return new Op(WRITE, ch, value, writeType, 0, priority, 3000, 2,
+                priority != PRIORITY_COMMAND, callback);
+        }
+
+        /** setCharacteristicNotification + CCCD write (indication if ch supports it). */
+        public static Op enableNotify(BluetoothGattCharacteristic ch, Callback callback) {
+            return new Op(ENABLE_NOTIFY, ch, null, 0, 0, PRIORITY_SETUP, 3000, 2, true, callback);
+        }
+
+        public static Op requestMtu(int mtu, Callback callback) {
+            return new Op(MTU, null, null, 0, mtu, PRIORITY_SETUP, 5000, 0, false, callback);
+        }
+
+        public UUID uuid() {
+            return ch != null ? ch.getUuid() : null;
+        }
+
+        @Override
+        public String toString() {
+            String[] names = {"read", "write", "notify", "mtu"};
+            return names[kind] + (ch != null ? " " + ch.getUuid() : " " + mtu);
+        }
+    }
+
+    private final Handler handler;
+    private final PriorityQueue<Op> queue = new PriorityQueue<>(16, new OpOrder());
+    private final TimeoutRunnable timeoutRunnable = new TimeoutRunnable();
+    private final NextRunnable nextRunnable = new NextRunnable();
+    private BluetoothGatt gatt;
+    private Op current;
+    private long nextSeq;
+
+    public GattOperationQueue(Handler handler) {
+        this.handler = handler;
+    }
+
+    /** Start serving a (new) connection; anything queued for the old one is dropped. */
+    public synchronized void attach(BluetoothGatt g) {
+        clear();
+        gatt = g;
+    }
+
+    /** Drop everything, e.g. on disconnect. Dropped operations get no callback. */
+    public synchronized void clear() {
+        handler.removeCallbacks(timeoutRunnable);
+        handler.removeCallbacks(nextRunnable);
+        queue.clear();
+        current = null;
+        gatt = null;
+    }
+
+    public synchronized void enqueue(Op op) {
+        op.seq = nextSeq++;
+        queue.add(op);
+        if (current == null) startNext();
+    }
+
+    public synchronized int pending() {
+        return queue.size() + (current != null ? 1 : 0);
+    }
+
+    /**
+     * Feed a GattCallback result in. Results that don't match the running operation
+     * (late callbacks of timed-out ops, notifications) are ignored; returns whether it matched.
+     */
+    public boolean complete(int kind, BluetoothGattCharacteristic ch, int status) {
+        Op op;
+        synchronized (this) {
+            op = current;
+            if (op == null || op.kind != kind) return false;
+            if (ch != null && op.ch != null && !op.ch.getUuid().equals(ch.getUuid())) return false;
+            handler.removeCallbacks(timeoutRunnable);
+            current = null;
+            if (status != BluetoothGatt.GATT_SUCCESS && retry(op, "status " + status)) return true;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            deliver(op, true, null);
+        } else {
+            deliver(op, false, "status " + status);
+        }
+        synchronized (this) {
+            if (current == null) startNext();
+        }
+        return true;
+    }
+
+    public boolean completeDescriptor(BluetoothGattDescriptor desc, int status) {
+        return complete(ENABLE_NOTIFY, desc.getCharacteristic(), status);
+    }
+
+    public boolean completeMtu(int status) {
+        return complete(MTU, null, status);
+    }
+
+    /** Caller holds the lock. Requeues op ahead of its priority peers if it has retries left. */
+    private boolean retry(Op op, String reason) {
+        if (op.attempt >= op.retries) return false;
+        op.attempt++;
+        Log.w(TAG, op + " failed (" + reason + "), retry " + op.attempt + "/" + op.retries);
+        op.seq = -nextSeq++;   // ahead of everything queued at the same priority
+        queue.add(op);
+        handler.postDelayed(nextRunnable, RETRY_DELAY_MS);
+        return true;
+    }
+
+    /** Caller holds the lock. Starts operations until one is in flight or the queue is empty. */
+    private void startNext() {
+        while (current == null && gatt != null) {
+            Op op = queue.poll();
+            if (op == null) return;
+            String error;
+            try {
+                error = start(gatt, op);
+            } catch (SecurityException e) {
+                error = "permission: " + e.getMessage();
+            }
+            if (error == null) {
+                current = op;
+                handler.postDelayed(timeoutRunnable, op.timeoutMs);
+                return;
+            }
+            if (retry(op, error)) return;
+            Log.w(TAG, op + " failed: " + error);
+            // Delivered off-lock so a callback may enqueue more
+            handler.post(new DeliverRunnable(op, error));
+        }
+    }
+
+    /** Issue op; null when its callback is now pending, else why it could not start. */
+    private static String start(BluetoothGatt g, Op op) {
+        switch (op.kind) {
+            case READ:
+                return g.readCharacteristic(op.ch) ? null : "readCharacteristic refused";
+            case WRITE:
+                op.ch.setValue(op.value);
+                op.ch.setWriteType(op.writeType);
+                return g.writeCharacteristic(op.ch) ? null : "writeCharacteristic refused";
+            case ENABLE_NOTIFY: {
+                if (!g.setCharacteristicNotification(op.ch, true)) return "setCharacteristicNotification false";
+                BluetoothGattDescriptor cccd = op.ch.getDescriptor(CCCD_UUID);
+                if (cccd == null) return "no CCCD";
+                boolean indicate = (op.ch.getProperties() & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
+                cccd.setValue(indicate ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE
+                    : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+                return g.writeDescriptor(cccd) ? null : "writeDescriptor refused";
+            }
+            case MTU:
+                return g.requestMtu(op.mtu) ? null : "requestMtu refused";
+            default:
+                return "unknown op";
+        }
+    }
+
+    private static void deliver(Op op, boolean ok, String error) {
+        if (op.callback == null) return;
+        try {
+            op.callback.onResult(op, ok, error);
+        } catch (Exception e) {
+            Log.e(TAG, "Callback for " + op + " failed", e);
+        }
+    }
+
+    private class TimeoutRunnable implements Runnable {
+        @Override
+        public void run() {
+            Op op;
+            synchronized (GattOperationQueue.this) {
+                op = current;
+                if (op == null) return;
+                current = null;
+                if (op.retryOnTimeout && retry(op, "timeout")) return;
+            }
+            Log.w(TAG, op + " timed out after " + op.timeoutMs + " ms");
+            deliver(op, false, "timeout");
+            synchronized (GattOperationQueue.this) {
+                if (current == null) startNext();
+            }
+        }
+    }
+
+    private class NextRunnable implements Runnable {
+        @Override
+        public void run() {
+            synchronized (GattOperationQueue.this) {
+                if (current == null) startNext();
+            }
+        }
+    }
+
+    private static class DeliverRunnable implements Runnable {
+        private final Op op;
+        private final String error;
+
+        DeliverRunnable(Op op, String error) {
+            this.op = op;
+            this.error = error;
+        }
+
+        @Override
+        public void run() {
+            deliver(op, false, error);
+        }
+    }
+
+    private static class OpOrder implements Comparator<Op> {
+        @Override
+        public int compare(Op a, Op b) {
+            if (a.priority != b.priority) return a.priority - b.priority;
+            return Long.compare(a.seq, b.seq);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+import android.webkit.WebView;
+
+/**
+ * WebViewActivity in its own process, for apps marked "isolated" (heavy pages like
+ * StepMaster's SVG diagrams). Each slot is a separate manifest entry with its own
+ * android:process and task, so its renderer, Java heap and WebView data directory
+ * are independent: a slow or crashing app doesn't drag the other tabs with it.
+ *
+ * Slots are assigned per app id and remembered; with more isolated apps than
+ * slots the least recently used slot is reused: the app opens as a new tab there
+ * and the previous owner's tabs are closed, so no app ever runs in two slot
+ * processes at once. Cookies and localStorage are per data directory, so an isolated
+ * app doesn't share them with the main process.
+ */
+public abstract class IsolatedWebViewActivity extends WebViewActivity {
+    private static final String TAG = "IsolatedWebView";
+    private static final String PREFS_NAME = "voiceportal_isolated_slots";
+    private static final String EXTRA_REPLACE = "replace_slot_owner";
+
+    private static final Class<?>[] SLOTS = { Slot1.class, Slot2.class, Slot3.class };
+
+    // setDataDirectorySuffix is once per process, before the first WebView
+    private static boolean dataDirSet;
+
+    public static class Slot1 extends IsolatedWebViewActivity {
+        @Override protected String slotName() { return "web1"; }
+    }
+
+    public static class Slot2 extends IsolatedWebViewActivity {
+        @Override protected String slotName() { return "web2"; }
+    }
+
+    public static class Slot3 extends IsolatedWebViewActivity {
+        @Override protected String slotName() { return "web3"; }
+    }
+
+    /** Also the process name suffix and WebView data directory suffix. */
+    protected abstract String slotName();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        if (!dataDirSet) {
+            try {
+                WebView.setDataDirectorySuffix(slotName());
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "WebView already initialized in " + slotName() + ": " + e.getMessage());
+            }
+            dataDirSet = true;
+        }
+        super.onCreate(savedInstanceState);
+        setTaskDescription(new android.app.ActivityManager.TaskDescription(
+            getIntent().getStringExtra("app_name")));
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        if (intent != null && intent.getBooleanExtra(EXTRA_REPLACE, false)) {
+            // The slot was handed to another app; its previous owner would otherwise
+            // stay alive here and start again in a second slot when relaunched
+            closeOtherTabs();
+            setTaskDescription(new android.app.ActivityManager.TaskDescription(
+                intent.getStringExtra("app_name")));
+        }
+    }
+
+    /** Intent opening the app's WebView: the shared WebViewActivity, or its own slot. */
+    public static Intent intentFor(Context context, String appId, boolean isolated) {
+        if (!isolated || appId == null) return new Intent(context, WebViewActivity.class);
+        return slotIntent(context, appId);
+    }
+
+    private static synchronized Intent slotIntent(Context context, String appId) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int slot = -1;
+        long oldest = Long.MAX_VALUE;
+        int lru = 0;
+        for (int i = 0; i < SLOTS.length; i++) {
+            String owner = prefs.getString("app_" + i, null);
+            if (appId.equals(owner)) {
+                slot = i;
+                break;
+            }
+            long used = owner == null ? 0 : prefs.getLong("used_" + i, 0);
+            if (used < oldest) {
+                oldest = used;
+                lru = i;
+            }
+        }
+        boolean reused = false;
+        if (slot < 0) {
+            slot = lru;
+            reused = prefs.getString("app_" + slot, null) != null;
+        }
+        prefs.edit()
+            .putString("app_" + slot, appId)
+            .putLong("used_" + slot, System.currentTimeMillis())
+            .apply();
+        Intent intent = new Intent(context, SLOTS[slot]);
+        if (reused) intent.putExtra(EXTRA_REPLACE, true);
+        return intent;
+    }
+}
@@ -0,0 +1,342 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Crash-safe autosave for pages: an append-only log per journal name in app
+ * storage, so edits survive the process being killed without rewriting a
+ * Download file per keystroke.
+ *
+ * write() records the full state, append() a delta op. A state supersedes
+ * everything before it, so a new write() drops whatever of that journal is
+ * still waiting; ops are kept in order after it. Pending records are
+ * flushed together every COALESCE_MS with a single fsync. replay() returns the
+ * last full state plus the ops after it; compact() exports that state to
+ * Download/ and shrinks the log to it.
+ *
+ * Record: int payloadLength, int crc32, byte type, long timeMillis, payload.
+ * A torn record at the tail (killed mid-write) fails its CRC and is ignored;
+ * before this process first appends to a log, the log is cut back to its last
+ * intact record, so new records never land behind unreadable garbage.
+ */
+public class Journal {
+    private static final String TAG = "Journal";
+    private static final long COALESCE_MS = 1000;
+    private static final long MAX_LOG_BYTES = 2L * 1024 * 1024;
+    private static final byte TYPE_STATE = 1;
+    private static final byte TYPE_OP = 2;
+
+    private static Journal instance;
+
+    private final File dir;
+    private final Handler handler;
+    private final FlushRunnable flushRunnable = new FlushRunnable();
+    // Unflushed records per journal, in order
+    private final Map<String, List<Record>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    // Logs whose tail was checked since this process started
+    private final Set<String> tailChecked = new HashSet<>();
+
+    private static class Record {
+        final byte type;
+        final long time;
+        final String payload;
+
+        Record(byte type, long time, String payload) {
+            this.type = type;
+            this.time = time;
+            this.payload = payload;
+        }
+    }
+
+    public static synchronized Journal get(Context context) {
+        if (instance == null) {
+            instance = new Journal(new File(context.getFilesDir(), "journals"));
+        }
+        return instance;
+    }
+
+    private Journal(File dir) {
+        this.dir = dir;
+        dir.mkdirs();
+        HandlerThread thread = new HandlerThread("vp-journal");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public synchronized void write(String name, String state) {
+        List<Record> list = pendingList(checkName(name));
+        list.clear();
+        list.add(new Record(TYPE_STATE, System.currentTimeMillis(), state));
+        schedule();
+    }
+
+    public synchronized void append(String name, String op) {
+        pendingList(checkName(name)).add(new Record(TYPE_OP, System.currentTimeMillis(), op));
+        schedule();
+    }
+
+    private List<Record> pendingList(String key) {
+        List<Record> list = pending.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            pending.put(key, list);
+        }
+        return list;
+    }
+
+    /** Write everything pending now, e.g. when the activity stops. No-op if never used. */
+    public static void flushNow() {
+        Journal journal;
+        synchronized (Journal.class) {
+            journal = instance;
+        }
+        if (journal != null) {
+            journal.handler.removeCallbacks(journal.flushRunnable);
+            journal.handler.post(journal.flushRunnable);
+        }
+    }
+
+    /**
+     * {"state": "..."|null, "ops": ["...", ...], "updated": millis}, or null when the
+     * journal is empty. Pending records are flushed first.
+     */
+    public synchronized String replay(String name) throws Exception {
+        String key = checkName(name);
+        flushLocked();
+        List<Record> records = read(file(key));
+        if (records.isEmpty()) return null;
+        int lastState = -1;
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).type == TYPE_STATE) lastState = i;
+        }
+        JSONObject o = new JSONObject();
+        o.put("state", lastState >= 0 ? records.get(lastState).payload : JSONObject.NULL);
+        JSONArray ops = new JSONArray();
+        for (int i = lastState + 1; i < records.size(); i++) ops.put(records.get(i).payload);
+        o.put("ops", ops);
+        o.put("updated", records.get(records.size() - 1).time);
+        return o.toString();
+    }
+
+    /** Names of journals with content, for a page deciding whether to offer recovery. */
+    public synchronized String list() {
+        flushLocked();
+        JSONArray arr = new JSONArray();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String n = f.getName();
+                if (n.endsWith(".log") && f.length() > 0) arr.put(n.substring(0, n.length() - 4));
+            }
+        }
+        return arr.toString();
+    }
+
+    /**
+     * Export the latest full state to Download/<subPath>/<filename> (in place, skipped when
+     * unchanged) and cut the log down to that state. Ops after it are kept.
+     */
+    public String compact(Context context, String name, String filename, String mimeType, String subPath)
+            throws Exception {
+        String key = checkName(name);
+        Record state;
+        synchronized (this) {
+            flushLocked();
+            state = lastState(read(file(key)));
+        }
+        if (state == null) return "ERROR: journal has no state";
+        String path = DownloadsWriter.writeInPlace(context, filename,
+            mimeType == null || mimeType.isEmpty() ? "text/plain" : mimeType, subPath,
+            state.payload.getBytes(StandardCharsets.UTF_8), true);
+        synchronized (this) {
+            rewriteFromLastState(key);
+        }
+        return path;
+    }
+
+    public synchronized void clear(String name) {
+        String key = checkName(name);
+        pending.remove(key);
+        file(key).delete();
+    }
+
+    private void schedule() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, COALESCE_MS);
+    }
+
+    private synchronized void flushLocked() {
+        flushScheduled = false;
+        for (Map.Entry<String, List<Record>> e : pending.entrySet()) {
+            String key = e.getKey();
+            File f = file(key);
+            try {
+                if (tailChecked.add(key)) truncateTornTail(f);
+                FileOutputStream fos = new FileOutputStream(f, true);
+                try {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 65536));
+                    for (Record r : e.getValue()) writeRecord(out, r.type, r.time, r.payload);
+                    out.flush();
+                    fos.getFD().sync();   // one fsync per journal per flush
+                } finally {
+                    fos.close();
+                }
+                if (f.length() > MAX_LOG_BYTES) rewriteFromLastState(key);
+            } catch (Exception ex) {
+                Log.e(TAG, "Flush of " + key + " failed", ex);
+            }
+        }
+        pending.clear();
+    }
+
+    /** Replace the log with its last state record plus the ops after it (temp file + rename). */
+    private void rewriteFromLastState(String key) {
+        File f = file(key);
+        File tmp = new File(dir, key + ".tmp");
+        try {
+            List<Record> records = read(f);
+            int lastState = -1;
+            for (int i = 0; i < records.size(); i++) {
+                if (records.get(i).type == TYPE_STATE) lastState = i;
+            }
+            if (lastState <= 0) return;   // nothing to drop
+            FileOutputStream fos = new FileOutputStream(tmp);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 65536));
+                for (int i = lastState; i < records.size(); i++) {
+                    Record r = records.get(i);
+                    writeRecord(out, r.type, r.time, r.payload);
+                }
+                out.flush();
+                fos.getFD().sync();
+            } finally {
+                fos.close();
+            }
+            if (!tmp.renameTo(f)) tmp.delete();
+            Log.d(TAG, "Compacted " + key + " to " + (records.size() - lastState) + " records");
+        } catch (Exception e) {
+            Log.e(TAG, "Compaction of " + key + " failed", e);
+            tmp.delete();
+        }
+    }
+
+    /** Cut the log back to the end of its last intact record (left over by a kill mid-flush). */
+    private static void truncateTornTail(File f) throws Exception {
+        if (!f.exists()) return;
+        long[] goodEnd = new long[1];
+        read(f, goodEnd);
+        if (goodEnd[0] >= f.length()) return;
+        FileOutputStream fos = new FileOutputStream(f, true);
+        try {
+            fos.getChannel().truncate(goodEnd[0]);
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        Log.w(TAG, "Truncated " + f.getName() + " to " + goodEnd[0] + " intact bytes");
+    }
+
+    private static Record lastState(List<Record> records) {
+        for (int i = records.size() - 1; i >= 0; i--) {
+            if (records.get(i).type == TYPE_STATE) return records.get(i);
+        }
+        return null;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, long time, String payload)
+            throws Exception {
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.writeInt((int) crc.getValue());
+        out.writeByte(type);
+        out.writeLong(time);
+        out.write(data);
+    }
+
+    private static List<Record> read(File f) throws Exception {
+        return read(f, null);
+    }
+
+    /** All intact records; stops at the first torn or corrupt one. goodEnd[0] gets the byte offset after the last. */
+    private static List<Record> read(File f, long[] goodEnd) throws Exception {
+        List<Record> records = new ArrayList<>();
+        long pos = 0;
+        if (!f.exists()) return records;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536));
+        try {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int crcValue = in.readInt();
+                byte type = in.readByte();
+                long time = in.readLong();
+                if (len < 0 || len > MAX_LOG_BYTES * 4) break;
+                byte[] data = new byte[len];
+                in.readFully(data);
+                CRC32 crc = new CRC32();
+                crc.update(type);
+                crc.update(data);
+                if ((int) crc.getValue() != crcValue) {
+                    Log.w(TAG, "Corrupt record in " + f.getName() + ", ignoring the rest");
+                    break;
+                }
+                records.add(new Record(type, time, new String(data, StandardCharsets.UTF_8)));
+                pos += 4 + 4 + 1 + 8 + len;
+            }
+        } catch (EOFException e) {
+            Log.w(TAG, "Torn record at the end of " + f.getName());
+        } finally {
+            in.close();
+        }
+        if (goodEnd != null) goodEnd[0] = pos;
+        return records;
+    }
+
+    private File file(String key) {
+        return new File(dir, key + ".log");
+    }
+
+    private static String checkName(String name) {
+        if (name == null || !name.matches("[A-Za-z0-9._-]{1,64}")) {
+            throw new IllegalArgumentException("Journal name must be 1-64 chars of A-Z a-z 0-9 . _ -");
+        }
+        return name;
+    }
+
+    private class FlushRunnable implements Runnable {
+        @Override
+        public void run() {
+            flushLocked();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.voiceportal.launcher;
+
+import java.util.Locale;
+
+/**
+ * Fixed-bucket latency histogram (HdrHistogram-style log-linear buckets) in a
+ * primitive array. Values are microseconds; each power of two is split into 8
+ * linear sub-buckets, so any recorded value is reported within 12.5%.
+ *
+ * Two windows are kept and rotated every WINDOW_MS, so percentiles cover the
+ * last 5-10 minutes instead of the whole session. Not thread-safe — record and
+ * read from the same thread (the monitor's poll thread).
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final long MAX_US = 60L * 1000L * 1000L;
+    private static final int BUCKETS = bucketIndex(MAX_US) + 1;
+    private static final long WINDOW_MS = 5L * 60L * 1000L;
+
+    private int[] current = new int[BUCKETS];
+    private int[] previous = new int[BUCKETS];
+    private long currentCount = 0;
+    private long previousCount = 0;
+    private long windowStart = System.currentTimeMillis();
+
+    private static int bucketIndex(long us) {
+        if (us < SUB) return (int) Math.max(us, 0);
+        int msb = 63 - Long.numberOfLeadingZeros(us);
+        int shift = msb - SUB_BITS;
+        int top = (int) (us >>> shift);  // in [SUB, 2*SUB)
+        return SUB + shift * SUB + (top - SUB);
+    }
+
+    /** Upper bound (inclusive) of the values that land in a bucket. */
+    private static long bucketUpper(int index) {
+        if (index < SUB) return index;
+        int shift = (index - SUB) / SUB;
+        int top = SUB + (index - SUB) % SUB;
+        return ((long) (top + 1) << shift) - 1;
+    }
+
+    public void record(long micros) {
+        rotateIfNeeded();
+        if (micros > MAX_US) micros = MAX_US;
+        current[bucketIndex(micros)]++;
+        currentCount++;
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart < WINDOW_MS) return;
+        int[] recycled = previous;
+        java.util.Arrays.fill(recycled, 0);
+        previous = current;
+        previousCount = currentCount;
+        current = recycled;
+        currentCount = 0;
+        windowStart = now;
+    }
+
+    public long count() {
+        return currentCount + previousCount;
+    }
+
+    /** Value at the given percentile (0-100) in microseconds, or -1 when empty. */
+    public long percentile(double p) {
+        rotateIfNeeded();
+        long total = count();
+        if (total == 0) return -1;
+        long rank = (long) Math.ceil(p / 100.0 * total);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += current[i] + previous[i];
+            if (seen >= rank) return bucketUpper(i);
+        }
+        return MAX_US;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(current, 0);
+        java.util.Arrays.fill(previous, 0);
+        currentCount = 0;
+        previousCount = 0;
+        windowStart = System.currentTimeMillis();
+    }
+
+    /** Compact human-readable duration: "850µs", "12ms", "1.4s". */
+    public static String format(long micros) {
+        if (micros < 0) return "-";
+        if (micros < 1000) return micros + "µs";
+        if (micros < 10000) return String.format(Locale.US, "%.1fms", micros / 1000.0);
+        if (micros < 1000000) return (micros / 1000) + "ms";
+        return String.format(Locale.US, "%.1fs", micros / 1000000.0);
+    }
+}
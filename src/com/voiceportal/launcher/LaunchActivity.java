@@ -36,6 +36,9 @@ public class LaunchActivity extends Activity implements ServerLauncher.StatusCal
     private int idleTimeoutMin;
     private boolean needsProxy;
     private String projectPath, devCommand, voiceMode, appId, appName;
+    private String serveMode, staticDir;
+    private boolean isolated;
+    private AppConfig config;
     private StringBuilder logBuffer;
 
     @Override
@@ -53,6 +56,9 @@ public class LaunchActivity extends Activity implements ServerLauncher.StatusCal
         devCommand = getIntent().getStringExtra("app_dev_command");
         voiceMode = getIntent().getStringExtra("app_voice_mode");
         idleTimeoutMin = getIntent().getIntExtra("app_idle_timeout", 0);
+        serveMode = getIntent().getStringExtra("app_serve_mode");
+        staticDir = getIntent().getStringExtra("app_static_dir");
+        isolated = getIntent().getBooleanExtra("app_isolated", false);
         needsProxy = voiceMode != null && !voiceMode.isEmpty() && !voiceMode.equals("none");
 
         TextView appNameView = findViewById(R.id.launch_app_name);
@@ -124,10 +130,16 @@ public class LaunchActivity extends Activity implements ServerLauncher.StatusCal
     private void startLaunch() {
         logBuffer = new StringBuilder();
         resetUI();
-        AppConfig config = new AppConfig(appId, appName, "", projectPath, port, devCommand, voiceMode, idleTimeoutMin);
+        config = new AppConfig(appId, appName, "", projectPath, port, devCommand, voiceMode, idleTimeoutMin);
+        if (serveMode != null) config.serveMode = serveMode;
+        if (staticDir != null && !staticDir.isEmpty()) config.staticDir = staticDir;
+        config.isolated = isolated;
         boolean kiosk = SettingsActivity.getKioskMode(this);
         launcher = new ServerLauncher(this, config, kiosk);
         launcher.launch(this);
+        // Build the first tab's WebView while the servers start, after this frame is drawn;
+        // isolated apps get theirs in another process, a spare here would be wasted
+        if (!isolated) mainHandler.post(new PrewarmRunnable());
     }
 
     @Override
@@ -228,8 +240,8 @@ public class LaunchActivity extends Activity implements ServerLauncher.StatusCal
             step3Text.setText(R.string.servers_ready);
             progressBar.setVisibility(View.GONE);
 
-            Intent intent = new Intent(LaunchActivity.this, WebViewActivity.class);
-            intent.putExtra("url", "http://127.0.0.1:" + port);
+            Intent intent = IsolatedWebViewActivity.intentFor(LaunchActivity.this, appId, isolated);
+            intent.putExtra("url", config.launchUrl());
             intent.putExtra("app_name", appName);
             intent.putExtra("app_port", port);
             startActivity(intent);
@@ -237,6 +249,13 @@ public class LaunchActivity extends Activity implements ServerLauncher.StatusCal
         }
     }
 
+    private class PrewarmRunnable implements Runnable {
+        @Override
+        public void run() {
+            WebViewPool.prewarm(LaunchActivity.this);
+        }
+    }
+
     private class ErrorRunnable implements Runnable {
         private final String message;
 
@@ -0,0 +1,56 @@
+package com.voiceportal.launcher;
+
+/**
+ * Fixed-capacity ring buffer of log lines. Once full, each new line overwrites
+ * the oldest one, so memory stays bounded however long the owner keeps logging.
+ * Not thread-safe — the monitor only touches it from the main thread.
+ */
+public class LogRing {
+    private final String[] lines;
+    private int head = 0;   // index of the oldest line
+    private int size = 0;
+    private long dropped = 0;
+
+    public LogRing(int capacity) {
+        lines = new String[capacity];
+    }
+
+    public void add(String line) {
+        if (size < lines.length) {
+            lines[(head + size) % lines.length] = line;
+            size++;
+        } else {
+            lines[head] = line;
+            head = (head + 1) % lines.length;
+            dropped++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Line at position i, oldest first. */
+    public String get(int i) {
+        return lines[(head + i) % lines.length];
+    }
+
+    /** Number of lines overwritten since creation. */
+    public long dropped() {
+        return dropped;
+    }
+
+    /** Copy all retained lines, oldest first, into one newline-separated string. */
+    public String join() {
+        int chars = 0;
+        for (int i = 0; i < size; i++) chars += get(i).length() + 1;
+        StringBuilder sb = new StringBuilder(chars + 64);
+        if (dropped > 0) {
+            sb.append("... ").append(dropped).append(" older lines dropped\n");
+        }
+        for (int i = 0; i < size; i++) {
+            sb.append(get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+}
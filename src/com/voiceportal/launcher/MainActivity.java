@@ -158,6 +158,11 @@ public class MainActivity extends Activity
         CheckBox vpCheckbox = dialogView.findViewById(R.id.edit_use_voiceportal);
         EditText modeInput = dialogView.findViewById(R.id.edit_voice_mode);
         EditText timeoutInput = dialogView.findViewById(R.id.edit_idle_timeout);
+        EditText cacheInput = dialogView.findViewById(R.id.edit_cache_mode);
+        CheckBox assetCacheCheckbox = dialogView.findViewById(R.id.edit_asset_cache);
+        CheckBox staticCheckbox = dialogView.findViewById(R.id.edit_serve_static);
+        EditText staticDirInput = dialogView.findViewById(R.id.edit_static_dir);
+        CheckBox isolatedCheckbox = dialogView.findViewById(R.id.edit_isolated);
 
         if (!isNew) {
             nameInput.setText(app.name);
@@ -171,6 +176,11 @@ public class MainActivity extends Activity
             vpCheckbox.setChecked(usesVP);
             modeInput.setText(usesVP ? app.voicePortalMode : "default");
             timeoutInput.setText(String.valueOf(app.idleTimeoutMin));
+            cacheInput.setText(app.cacheMode);
+            assetCacheCheckbox.setChecked(app.assetCache);
+            staticCheckbox.setChecked(app.isStatic());
+            staticDirInput.setText(app.staticDir);
+            isolatedCheckbox.setChecked(app.isolated);
         } else {
             timeoutInput.setText("60");
         }
@@ -179,7 +189,8 @@ public class MainActivity extends Activity
         builder.setTitle(isNew ? "Add app" : "Edit app");
         builder.setView(dialogView);
         builder.setPositiveButton("Save", new SaveClickListener(position, nameInput, descInput,
-                pathInput, portInput, cmdInput, vpCheckbox, modeInput, timeoutInput));
+                pathInput, portInput, cmdInput, vpCheckbox, modeInput, timeoutInput,
+                cacheInput, assetCacheCheckbox, staticCheckbox, staticDirInput, isolatedCheckbox));
         builder.setNegativeButton("Cancel", null);
         builder.show();
     }
@@ -202,6 +213,9 @@ public class MainActivity extends Activity
         intent.putExtra("app_dev_command", app.devCommand);
         intent.putExtra("app_voice_mode", app.voicePortalMode);
         intent.putExtra("app_idle_timeout", app.idleTimeoutMin);
+        intent.putExtra("app_serve_mode", app.serveMode);
+        intent.putExtra("app_static_dir", app.staticDir);
+        intent.putExtra("app_isolated", app.isolated);
         startActivity(intent);
     }
 
@@ -224,12 +238,16 @@ public class MainActivity extends Activity
     private class SaveClickListener implements DialogInterface.OnClickListener {
         private final int position;
         private final EditText nameInput, descInput, pathInput, portInput, cmdInput, modeInput, timeoutInput;
-        private final CheckBox vpCheckbox;
+        private final EditText cacheInput, staticDirInput;
+        private final CheckBox vpCheckbox, assetCacheCheckbox, staticCheckbox, isolatedCheckbox;
 
         SaveClickListener(int position, EditText nameInput, EditText descInput,
                           EditText pathInput, EditText portInput,
                           EditText cmdInput, CheckBox vpCheckbox,
-                          EditText modeInput, EditText timeoutInput) {
+                          EditText modeInput, EditText timeoutInput,
+                          EditText cacheInput, CheckBox assetCacheCheckbox,
+                          CheckBox staticCheckbox, EditText staticDirInput,
+                          CheckBox isolatedCheckbox) {
             this.position = position;
             this.nameInput = nameInput;
             this.descInput = descInput;
@@ -239,6 +257,11 @@ public class MainActivity extends Activity
             this.vpCheckbox = vpCheckbox;
             this.modeInput = modeInput;
             this.timeoutInput = timeoutInput;
+            this.cacheInput = cacheInput;
+            this.assetCacheCheckbox = assetCacheCheckbox;
+            this.staticCheckbox = staticCheckbox;
+            this.staticDirInput = staticDirInput;
+            this.isolatedCheckbox = isolatedCheckbox;
         }
 
         @Override
@@ -256,6 +279,11 @@ public class MainActivity extends Activity
                 mode = "none";
             }
             String timeoutStr = timeoutInput.getText().toString().trim();
+            String cacheMode = AppConfig.normalizeCacheMode(cacheInput.getText().toString().trim());
+            boolean assetCache = assetCacheCheckbox.isChecked();
+            String serveMode = staticCheckbox.isChecked() ? AppConfig.SERVE_STATIC : AppConfig.SERVE_DEV;
+            String staticDir = staticDirInput.getText().toString().trim();
+            if (staticDir.isEmpty()) staticDir = "dist";
 
             if (name.isEmpty() || path.isEmpty() || portStr.isEmpty()) {
                 Toast.makeText(MainActivity.this, "Name, path and port are required", Toast.LENGTH_SHORT).show();
@@ -280,12 +308,14 @@ public class MainActivity extends Activity
             String id = name.toLowerCase().replaceAll("[^a-z0-9]", "");
             if (id.isEmpty()) id = "app" + System.currentTimeMillis();
 
+            AppConfig app;
             if (position < 0) {
                 // Add new
-                apps.add(new AppConfig(id, name, desc, path, port, cmd, mode, timeout));
+                app = new AppConfig(id, name, desc, path, port, cmd, mode, timeout);
+                apps.add(app);
             } else {
                 // Update existing
-                AppConfig app = apps.get(position);
+                app = apps.get(position);
                 app.name = name;
                 app.description = desc;
                 app.projectPath = path;
@@ -294,6 +324,11 @@ public class MainActivity extends Activity
                 app.voicePortalMode = mode;
                 app.idleTimeoutMin = timeout;
             }
+            app.cacheMode = cacheMode;
+            app.assetCache = assetCache;
+            app.serveMode = serveMode;
+            app.staticDir = staticDir;
+            app.isolated = isolatedCheckbox.isChecked();
 
             AppConfig.saveAll(MainActivity.this, apps);
             loadApps();
@@ -371,6 +406,7 @@ public class MainActivity extends Activity
         public void run() {
             for (int i = 0; i < appList.size(); i++) {
                 AppConfig app = appList.get(i);
+                if (app.isStatic()) continue;   // no server to find
                 try {
                     URL url = new URL("http://127.0.0.1:" + app.port);
                     HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -399,8 +435,8 @@ public class MainActivity extends Activity
         public void run() {
             Toast.makeText(MainActivity.this,
                 "Reconnecting to " + app.name + "...", Toast.LENGTH_SHORT).show();
-            Intent intent = new Intent(MainActivity.this, WebViewActivity.class);
-            intent.putExtra("url", "http://127.0.0.1:" + app.port);
+            Intent intent = IsolatedWebViewActivity.intentFor(MainActivity.this, app.id, app.isolated);
+            intent.putExtra("url", app.launchUrl());
             intent.putExtra("app_name", app.name);
             intent.putExtra("app_port", app.port);
             startActivity(intent);
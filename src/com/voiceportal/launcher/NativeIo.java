@@ -0,0 +1,46 @@
+package com.voiceportal.launcher;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared executor for VPNative's async file operations. A few threads let
+ * independent saves overlap (MediaStore calls are mostly waiting on binder and
+ * disk) without letting a page flood the device; the queue is bounded too, and
+ * a full queue is reported back instead of blocking the JavaBridge thread.
+ */
+public class NativeIo {
+    private static final int THREADS = 3;
+    private static final int QUEUE = 64;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+        THREADS, THREADS, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(QUEUE), new IoThreadFactory());
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /** Queue a task; false when the queue is full. */
+    public static boolean submit(Runnable task) {
+        try {
+            EXECUTOR.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static class IoThreadFactory implements ThreadFactory {
+        private int count;
+
+        @Override
+        public synchronized Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "vp-io-" + (++count));
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
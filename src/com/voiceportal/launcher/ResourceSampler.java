@@ -0,0 +1,377 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.util.Base64;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Samples CPU, RSS and open FD counts for the process trees behind tracked ports.
+ *
+ * Our UID can't read other apps' /proc entries, but Termux can read its own, so a
+ * small Python helper (procstat.py) runs inside Termux and serves one /proc snapshot
+ * per HTTP request on 127.0.0.1 — same pattern as the log reader in ServerLauncher.
+ */
+public class ResourceSampler {
+    private static final String TAG = "ResourceSampler";
+    private static final String HOME = "/data/data/com.termux/files/home";
+    private static final String SCRIPT = HOME + "/.voiceportal/procstat.py";
+    public static final int HELPER_PORT = 19457;
+    private static final long HELPER_RESTART_COOLDOWN_MS = 30000;
+
+    // Warning thresholds
+    public static final long RSS_WARN_KB = 768L * 1024L;
+    public static final double RSS_GROWTH_WARN_MB_PER_MIN = 40.0;
+    public static final int FD_WARN = 1000;
+    public static final double CPU_WARN_PERCENT = 90.0;
+    private static final int CPU_WARN_CONSECUTIVE = 3;
+    private static final int HISTORY = 20;
+
+    /** One process tree to sample: port plus an optional cmdline match (project path). */
+    public static class Target {
+        final int port;
+        final String match;
+
+        public Target(int port, String match) {
+            this.port = port;
+            this.match = match;
+        }
+    }
+
+    /** Raw values for one tree from a single /proc snapshot. */
+    public static class Sample {
+        int pidCount;
+        long cpuTicks;
+        long rssKb;
+        int fds;
+        int threads;
+    }
+
+    /** Rolling history for one port: CPU% from tick deltas, trends and warning state. */
+    public static class Stats {
+        private final double[] cpuHist = new double[HISTORY];
+        private final long[] rssHist = new long[HISTORY];
+        private final int[] fdHist = new int[HISTORY];
+        private final long[] timeHist = new long[HISTORY];
+        private int count = 0;
+        private int head = 0;
+        private long lastTicks = -1;
+        private double lastTime = -1;
+        private int cpuHighStreak = 0;
+        private String lastWarning = null;
+
+        public int pidCount;
+        public double cpuPercent;
+        public long rssKb;
+        public int fds;
+
+        void add(Sample s, double helperTime, int clkTck, long wallMs) {
+            pidCount = s.pidCount;
+            rssKb = s.rssKb;
+            fds = s.fds;
+            cpuPercent = 0;
+            if (lastTicks >= 0 && helperTime > lastTime && s.cpuTicks >= lastTicks) {
+                double secs = (s.cpuTicks - lastTicks) / (double) clkTck;
+                cpuPercent = 100.0 * secs / (helperTime - lastTime);
+            }
+            lastTicks = s.cpuTicks;
+            lastTime = helperTime;
+
+            cpuHist[head] = cpuPercent;
+            rssHist[head] = rssKb;
+            fdHist[head] = fds;
+            timeHist[head] = wallMs;
+            head = (head + 1) % HISTORY;
+            if (count < HISTORY) count++;
+
+            cpuHighStreak = cpuPercent >= CPU_WARN_PERCENT ? cpuHighStreak + 1 : 0;
+        }
+
+        /** Drop history when the tree disappears so a restart doesn't show a bogus trend. */
+        void reset() {
+            count = 0;
+            head = 0;
+            lastTicks = -1;
+            lastTime = -1;
+            cpuHighStreak = 0;
+            pidCount = 0;
+            cpuPercent = 0;
+            rssKb = 0;
+            fds = 0;
+        }
+
+        public boolean hasData() {
+            return count > 0 && pidCount > 0;
+        }
+
+        private int index(int back) {
+            return ((head - 1 - back) % HISTORY + HISTORY) % HISTORY;
+        }
+
+        /** RSS growth over the retained window, in MB per minute. */
+        public double rssGrowthMbPerMin() {
+            if (count < 3) return 0;
+            int newest = index(0);
+            int oldest = index(count - 1);
+            long dtMs = timeHist[newest] - timeHist[oldest];
+            if (dtMs <= 0) return 0;
+            double dMb = (rssHist[newest] - rssHist[oldest]) / 1024.0;
+            return dMb * 60000.0 / dtMs;
+        }
+
+        private double meanCpu() {
+            double sum = 0;
+            for (int i = 1; i < count; i++) sum += cpuHist[index(i)];
+            return count > 1 ? sum / (count - 1) : cpuPercent;
+        }
+
+        private double meanFds() {
+            double sum = 0;
+            for (int i = 1; i < count; i++) sum += fdHist[index(i)];
+            return count > 1 ? sum / (count - 1) : fds;
+        }
+
+        private static String arrow(double current, double mean, double tolerance) {
+            if (current > mean + tolerance) return "↑";
+            if (current < mean - tolerance) return "↓";
+            return "→";
+        }
+
+        /** Returns the current warning text, or null when all values are within thresholds. */
+        public String warning() {
+            if (!hasData()) return null;
+            StringBuilder sb = new StringBuilder();
+            if (rssKb >= RSS_WARN_KB) {
+                sb.append("RSS ").append(rssKb / 1024).append(" MB");
+            }
+            double growth = rssGrowthMbPerMin();
+            if (count >= HISTORY / 2 && growth >= RSS_GROWTH_WARN_MB_PER_MIN) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(String.format(Locale.US, "RSS growing %.0f MB/min", growth));
+            }
+            if (fds >= FD_WARN) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(fds).append(" open FDs");
+            }
+            if (cpuHighStreak >= CPU_WARN_CONSECUTIVE) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(String.format(Locale.US, "CPU %.0f%%", cpuPercent));
+            }
+            return sb.length() > 0 ? sb.toString() : null;
+        }
+
+        /**
+         * Returns the warning only when it differs from the last reported one, so the
+         * monitor logs threshold crossings instead of repeating them every poll.
+         */
+        public String newWarning() {
+            String w = warning();
+            boolean changed = w == null ? lastWarning != null : !w.equals(lastWarning);
+            lastWarning = w;
+            return changed ? w : null;
+        }
+
+        public String summary() {
+            if (!hasData()) return "";
+            double growth = rssGrowthMbPerMin();
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "CPU %.0f%% %s", cpuPercent,
+                arrow(cpuPercent, meanCpu(), 5.0)));
+            sb.append(String.format(Locale.US, " · RSS %d MB %s", rssKb / 1024,
+                arrow(growth, 0, 1.0)));
+            if (count >= 3 && Math.abs(growth) >= 1.0) {
+                sb.append(String.format(Locale.US, " %+.0f MB/min", growth));
+            }
+            sb.append(String.format(Locale.US, " · FD %d %s", fds, arrow(fds, meanFds(), 2.0)));
+            sb.append(" · ").append(pidCount).append(pidCount == 1 ? " proc" : " procs");
+            return sb.toString();
+        }
+    }
+
+    private final Context context;
+    private final Map<Integer, Stats> stats = new HashMap<>();
+    private long lastHelperStart = 0;
+
+    public ResourceSampler(Context context) {
+        this.context = context;
+    }
+
+    /** Stats for a port, created on first use. Only touch from the sampling thread. */
+    public Stats getStats(int port) {
+        Stats s = stats.get(port);
+        if (s == null) {
+            s = new Stats();
+            stats.put(port, s);
+        }
+        return s;
+    }
+
+    /**
+     * Take one snapshot for all targets and fold it into their Stats.
+     * Blocking — call from a background thread. Returns false if the helper is not up
+     * yet (it is (re)started in the background, so the next call usually succeeds).
+     */
+    public boolean sample(List<Target> targets) {
+        if (targets.isEmpty()) return true;
+        StringBuilder query = new StringBuilder();
+        try {
+            for (int i = 0; i < targets.size(); i++) {
+                Target t = targets.get(i);
+                if (i > 0) query.append(',');
+                query.append(t.port).append(':');
+                if (t.match != null) query.append(URLEncoder.encode(t.match, "UTF-8"));
+            }
+        } catch (Exception e) {
+            return false;
+        }
+
+        String body = httpGet("/sample?t=" + query);
+        if (body == null) {
+            ensureHelper();
+            return false;
+        }
+
+        try {
+            JSONObject obj = new JSONObject(body);
+            int clkTck = obj.optInt("clk", 100);
+            double helperTime = obj.getDouble("ts");
+            JSONObject results = obj.getJSONObject("targets");
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < targets.size(); i++) {
+                Target t = targets.get(i);
+                Stats st = getStats(t.port);
+                JSONObject r = results.optJSONObject(String.valueOf(t.port));
+                if (r == null || r.optInt("pids", 0) == 0) {
+                    st.reset();
+                    continue;
+                }
+                Sample s = new Sample();
+                s.pidCount = r.getInt("pids");
+                s.cpuTicks = r.getLong("ticks");
+                s.rssKb = r.getLong("rss");
+                s.fds = r.getInt("fds");
+                s.threads = r.optInt("threads", 0);
+                st.add(s, helperTime, clkTck, now);
+            }
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Bad sample response: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Install and start procstat.py in Termux, at most once per cooldown window. */
+    private void ensureHelper() {
+        long now = System.currentTimeMillis();
+        if (now - lastHelperStart < HELPER_RESTART_COOLDOWN_MS) return;
+        lastHelperStart = now;
+
+        String pyScript =
+            "import http.server,os,re,sys,time\n" +
+            "from urllib.parse import urlparse,parse_qs,unquote\n" +
+            "CLK=os.sysconf('SC_CLK_TCK')\n" +
+            "ME=os.getpid()\n" +
+            "def rd(p):\n" +
+            "    try:\n" +
+            "        with open(p,'rb') as f:return f.read()\n" +
+            "    except:return b''\n" +
+            "def snapshot():\n" +
+            "    procs={}\n" +
+            "    for d in os.listdir('/proc'):\n" +
+            "        if not d.isdigit():continue\n" +
+            "        pid=int(d)\n" +
+            "        if pid==ME:continue\n" +
+            "        st=rd(f'/proc/{d}/stat').decode('latin-1')\n" +
+            "        if not st:continue\n" +
+            "        f=st[st.rfind(')')+2:].split()\n" +
+            "        rss=0;thr=0\n" +
+            "        for l in rd(f'/proc/{d}/status').decode('latin-1').splitlines():\n" +
+            "            if l.startswith('VmRSS:'):rss=int(l.split()[1])\n" +
+            "            elif l.startswith('Threads:'):thr=int(l.split()[1])\n" +
+            "        cmd=rd(f'/proc/{d}/cmdline').replace(b'\\0',b' ').decode('utf-8','replace')\n" +
+            "        procs[pid]=(int(f[1]),int(f[11])+int(f[12]),rss,thr,cmd)\n" +
+            "    return procs\n" +
+            "def tree(procs,roots):\n" +
+            "    kids={}\n" +
+            "    for p,v in procs.items():kids.setdefault(v[0],[]).append(p)\n" +
+            "    out=set();todo=list(roots)\n" +
+            "    while todo:\n" +
+            "        p=todo.pop()\n" +
+            "        if p in out:continue\n" +
+            "        out.add(p);todo.extend(kids.get(p,[]))\n" +
+            "    return out\n" +
+            "def nfds(pid):\n" +
+            "    try:return len(os.listdir(f'/proc/{pid}/fd'))\n" +
+            "    except:return 0\n" +
+            "class H(http.server.BaseHTTPRequestHandler):\n" +
+            "    def do_GET(self):\n" +
+            "        u=urlparse(self.path)\n" +
+            "        res={'clk':CLK,'ts':time.monotonic(),'targets':{}}\n" +
+            "        if u.path=='/sample':\n" +
+            "            procs=snapshot()\n" +
+            "            for t in parse_qs(u.query).get('t',[''])[0].split(','):\n" +
+            "                if ':' not in t:continue\n" +
+            "                port,match=t.split(':',1)\n" +
+            "                match=unquote(match)\n" +
+            "                pr=re.compile(r'(?<!\\d)'+re.escape(port)+r'(?!\\d)')\n" +
+            "                roots=[p for p,v in procs.items() if (match and match in v[4]) or pr.search(v[4])]\n" +
+            "                pids=tree(procs,roots)\n" +
+            "                res['targets'][port]={'pids':len(pids),\n" +
+            "                    'ticks':sum(procs[p][1] for p in pids),\n" +
+            "                    'rss':sum(procs[p][2] for p in pids),\n" +
+            "                    'threads':sum(procs[p][3] for p in pids),\n" +
+            "                    'fds':sum(nfds(p) for p in pids)}\n" +
+            "        import json\n" +
+            "        d=json.dumps(res).encode()\n" +
+            "        self.send_response(200)\n" +
+            "        self.send_header('Content-Type','application/json')\n" +
+            "        self.end_headers()\n" +
+            "        self.wfile.write(d)\n" +
+            "    def log_message(self,*a):pass\n" +
+            "http.server.HTTPServer(('127.0.0.1',int(sys.argv[1])),H).serve_forever()\n";
+        String b64 = Base64.encodeToString(pyScript.getBytes(), Base64.NO_WRAP);
+        String cmd = "mkdir -p " + HOME + "/.voiceportal && " +
+            "echo '" + b64 + "' | base64 -d > " + SCRIPT + " && " +
+            "python3 " + SCRIPT + " " + HELPER_PORT;
+        String err = TermuxCommandRunner.runInBackground(context, cmd, null);
+        if (err != null) {
+            Log.w(TAG, "procstat helper start failed: " + err);
+        } else {
+            Log.d(TAG, "procstat helper started on port " + HELPER_PORT);
+        }
+    }
+
+    private String httpGet(String path) {
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL("http://127.0.0.1:" + HELPER_PORT + path);
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(500);
+            conn.setReadTimeout(2000);
+            conn.setRequestMethod("GET");
+            if (conn.getResponseCode() != 200) return null;
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(conn.getInputStream()));
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+            reader.close();
+            return sb.toString();
+        } catch (Exception e) {
+            return null;
+        } finally {
+            if (conn != null) conn.disconnect();
+        }
+    }
+}
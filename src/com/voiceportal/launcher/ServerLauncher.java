@@ -4,6 +4,8 @@ import android.content.Context;
 import android.util.Base64;
 import android.util.Log;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
@@ -18,6 +20,7 @@ public class ServerLauncher {
     private static final int TIMEOUT_MS = 30000;
     private static final String LOG_DIR = HOME + "/.voiceportal/logs";
     private static final int LOG_PORT_OFFSET = 10000;
+    private static final int SYNC_TIMEOUT_MS = 20000;
 
     public interface StatusCallback {
         void onDevServerStarting();
@@ -31,6 +34,7 @@ public class ServerLauncher {
     private final Context context;
     private final AppConfig app;
     private final boolean kioskMode;
+    private final boolean watchIdle;
     private volatile boolean cancelled = false;
     private Thread idleWatchdog;
 
@@ -39,9 +43,18 @@ public class ServerLauncher {
     }
 
     public ServerLauncher(Context context, AppConfig app, boolean kioskMode) {
+        this(context, app, kioskMode, true);
+    }
+
+    /**
+     * watchIdle false: never start the idle watchdog. For one-shot launchers nobody
+     * keeps around to stop it again, such as the monitor service's restarts.
+     */
+    public ServerLauncher(Context context, AppConfig app, boolean kioskMode, boolean watchIdle) {
         this.context = context;
         this.app = app;
         this.kioskMode = kioskMode;
+        this.watchIdle = watchIdle;
     }
 
     public void cancel() {
@@ -54,7 +67,7 @@ public class ServerLauncher {
     }
 
     public void startIdleWatchdog() {
-        if (app.idleTimeoutMin <= 0) return;
+        if (!watchIdle || app.idleTimeoutMin <= 0 || app.isStatic()) return;
 
         stopIdleWatchdog();
         idleWatchdog = new Thread(new IdleWatchdogRunnable());
@@ -170,6 +183,12 @@ public class ServerLauncher {
                 String projectDir = HOME + "/" + app.projectPath;
                 String logFile = LOG_DIR + "/" + app.id + ".log";
                 int logPort = getLogPort();
+                ServerMonitorService.poke(context);
+
+                if (app.isStatic()) {
+                    launchStatic(callback, projectDir, needsProxy);
+                    return;
+                }
 
                 // Quick reconnect: if server already responding, skip kill/restart
                 if (isPortResponding(app.port)) {
@@ -177,6 +196,7 @@ public class ServerLauncher {
                     if (proxyOk) {
                         callback.onLog("Server on port " + app.port + " already running");
                         callback.onServersReady();
+                        ServerMonitorService.start(context);
                         startIdleWatchdog();
                         return;
                     }
@@ -325,6 +345,7 @@ public class ServerLauncher {
 
                 if (ready) {
                     callback.onServersReady();
+                    ServerMonitorService.start(context);
                     startIdleWatchdog();
                 } else {
                     // Fetch final log content for error details
@@ -369,6 +390,92 @@ public class ServerLauncher {
         }
     }
 
+    /**
+     * serveMode "static": no dev server. Termux syncs the build output to shared
+     * storage (its home is private to Termux's UID), then WebViewActivity serves
+     * the files itself via StaticSite. Only the proxy is started, if the app uses it.
+     */
+    private void launchStatic(StatusCallback callback, String projectDir, boolean needsProxy)
+            throws InterruptedException {
+        String src = projectDir + "/" + app.staticDir;
+        File site = StaticSite.siteDir(app.id);
+        String dst = site.getPath();
+        File marker = new File(site, ".vp-sync");
+        String token = String.valueOf(System.currentTimeMillis());
+
+        callback.onDevServerStarting();
+        callback.onLog("Sync " + app.staticDir + "/ -> " + dst);
+        String syncCmd = "test -f " + src + "/index.html || { echo 'No index.html in " + src + "'; exit 1; }; " +
+            "mkdir -p " + dst + " && " +
+            "if command -v rsync >/dev/null; then rsync -a --delete --exclude .vp-sync " + src + "/ " + dst + "/; " +
+            "else rm -rf " + dst + "/* && cp -r " + src + "/. " + dst + "/; fi && " +
+            "echo " + token + " > " + dst + "/.vp-sync";
+        String syncErr = TermuxCommandRunner.runInBackground(context, syncCmd, projectDir);
+        if (syncErr != null) callback.onLog("ERR sync: " + syncErr);
+
+        long start = System.currentTimeMillis();
+        boolean synced = false;
+        while (!cancelled && System.currentTimeMillis() - start < SYNC_TIMEOUT_MS) {
+            if (token.equals(readMarker(marker))) {
+                synced = true;
+                break;
+            }
+            Thread.sleep(200);
+        }
+        if (cancelled) return;
+
+        if (synced) {
+            callback.onLog("Synced in " + (System.currentTimeMillis() - start) + "ms");
+        } else if (new File(site, "index.html").isFile()) {
+            callback.onLog("Sync not confirmed, serving previous copy");
+        } else {
+            callback.onError("Build output not found in " + dst + ".\n\n" +
+                "Build it in Termux:\n  cd " + projectDir + " && npm run build\n\n" +
+                "Termux needs storage access:\n  termux-setup-storage");
+            return;
+        }
+
+        if (needsProxy) {
+            String vpDir = HOME + "/projekty/VoicePortal";
+            String proxyCmd = "cd " + vpDir + " && bash voiceportal-daemon.sh --restart " + projectDir;
+            callback.onProxyStarting();
+            callback.onLog("CMD: " + proxyCmd);
+            String proxyErr = TermuxCommandRunner.runInBackground(context, proxyCmd, vpDir);
+            if (proxyErr != null) callback.onLog("ERR proxy: " + proxyErr);
+
+            callback.onWaitingForServers();
+            long proxyStart = System.currentTimeMillis();
+            boolean proxyReady = false;
+            while (!cancelled && System.currentTimeMillis() - proxyStart < TIMEOUT_MS) {
+                if (isPortResponding(PROXY_PORT)) {
+                    proxyReady = true;
+                    break;
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+            if (cancelled) return;
+            if (!proxyReady) {
+                callback.onError("VoicePortal proxy not responding on port " + PROXY_PORT + ".");
+                return;
+            }
+            callback.onLog("+ proxy:" + PROXY_PORT + " OK");
+            ServerMonitorService.start(context);
+        }
+        callback.onServersReady();
+    }
+
+    private static String readMarker(File marker) {
+        try {
+            FileInputStream in = new FileInputStream(marker);
+            byte[] buf = new byte[64];
+            int n = in.read(buf);
+            in.close();
+            return n > 0 ? new String(buf, 0, n, "US-ASCII").trim() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private class IdleWatchdogRunnable implements Runnable {
         @Override
         public void run() {
@@ -379,7 +486,10 @@ public class ServerLauncher {
                 while (!Thread.currentThread().isInterrupted()) {
                     Thread.sleep(30000);
 
-                    if (isPortResponding(app.port)) {
+                    // Reuse the monitor service's probe when it is fresh
+                    Boolean alive = ServerMonitorService.knownAlive(app.port, 60000);
+                    if (alive == null) alive = isPortResponding(app.port);
+                    if (alive) {
                         lastActivity = System.currentTimeMillis();
                     }
 
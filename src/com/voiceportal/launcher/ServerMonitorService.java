@@ -0,0 +1,773 @@
+package com.voiceportal.launcher;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.IBinder;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.json.JSONObject;
+
+/**
+ * Foreground service that probes all tracked servers, so monitoring keeps running
+ * while we are inside WebViewActivity. Shared by ServerMonitorActivity (binds and
+ * renders), ServerLauncher (pokes it during launch, its idle watchdog reads the
+ * last probe results) and the status notification (per-app state + stop actions).
+ *
+ * Probe interval is adaptive: FAST_INTERVAL_MS while something is changing or
+ * after a poke, then doubling up to 3s while the monitor screen is visible or
+ * 15s when nobody is looking.
+ */
+public class ServerMonitorService extends Service {
+    private static final String TAG = "MonitorService";
+    private static final int PROXY_PORT = 3456;
+    private static final String CHANNEL_ID = "server_monitor";
+    private static final int NOTIFICATION_ID = 3456;
+
+    public static final String ACTION_START = "com.voiceportal.launcher.MONITOR_START";
+    public static final String ACTION_POKE = "com.voiceportal.launcher.MONITOR_POKE";
+    public static final String ACTION_STOP_SERVER = "com.voiceportal.launcher.MONITOR_STOP_SERVER";
+    public static final String ACTION_QUIT = "com.voiceportal.launcher.MONITOR_QUIT";
+    public static final String ACTION_BULK = "com.voiceportal.launcher.MONITOR_BULK";
+    public static final String EXTRA_PORT = "port";
+    public static final String EXTRA_PORTS = "ports";
+    public static final String EXTRA_RESTART = "restart";
+
+    private static final int FAST_INTERVAL_MS = 1000;
+    private static final int VISIBLE_MAX_INTERVAL_MS = 3000;
+    private static final int BACKGROUND_MAX_INTERVAL_MS = 15000;
+    private static final long FAST_WINDOW_MS = 10000;
+    private static final long SAMPLE_INTERVAL_MS = 6000;
+    private static final long IDLE_STOP_MS = 2 * 60 * 1000;
+    private static final int PROBE_TIMEOUT_MS = 2000;
+    private static final int PROBE_MAX_BODY = 512 * 1024;
+    private static final long SLOW_P95_US = 1000L * 1000L;
+    private static final int LOG_CAPACITY = 500;
+    private static final int MAX_STOP_ACTIONS = 2;
+    private static final long RELEASE_TIMEOUT_MS = 8000;
+    private static final int RELEASE_POLL_MS = 250;
+    private static final int[] SCAN_PORTS = {
+        3000, 3001, 4200, 5000, 5173, 5174,
+        8000, 8080, 8081, 8082, 8085, 8888, 8889,
+        9000, 9090, 19876
+    };
+
+    /** Probe results shared with other components: port -> {probe time, alive}. */
+    private static final ConcurrentHashMap<Integer, long[]> lastProbe = new ConcurrentHashMap<>();
+    private static volatile ServerMonitorService instance;
+
+    /** Callbacks arrive on the probe thread — post to the UI thread before touching views. */
+    public interface Listener {
+        void onServersUpdated(List<ServerState> servers);
+        void onLog(String line);
+    }
+
+    /** State of one tracked port. Written by the probe thread, read by listeners. */
+    public static class ServerState {
+        public final String name;
+        public final int port;
+        public final boolean isProxy;
+        public final String projectPath;
+        public final boolean isScanned;
+        public volatile boolean running;
+        public volatile String details = "";
+        public volatile String resources = "";
+        public volatile boolean resourceWarning;
+        public volatile String latency = "";
+        public volatile boolean slow;
+        final LatencyHistogram connectHist = new LatencyHistogram();
+        final LatencyHistogram ttfbHist = new LatencyHistogram();
+        final LatencyHistogram totalHist = new LatencyHistogram();
+
+        ServerState(String name, int port, boolean isProxy, String projectPath, boolean isScanned) {
+            this.name = name;
+            this.port = port;
+            this.isProxy = isProxy;
+            this.projectPath = projectPath;
+            this.isScanned = isScanned;
+        }
+    }
+
+    public class LocalBinder extends Binder {
+        public ServerMonitorService getService() {
+            return ServerMonitorService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final LogRing logRing = new LogRing(LOG_CAPACITY);
+    private final Object wakeLock = new Object();
+    private volatile List<ServerState> servers = Collections.emptyList();
+    private volatile boolean probing = false;
+    private volatile long fastUntil = 0;
+    private volatile int visibleClients = 0;
+    private boolean wakeRequested = false;
+    private ResourceSampler sampler;
+    private Thread probeThread;
+    private String lastNotificationText = null;
+
+    // --- Static entry points for other components ---
+
+    /** Start (or keep) the service in the foreground. Safe to call repeatedly. */
+    public static void start(Context context) {
+        Intent intent = new Intent(context, ServerMonitorService.class);
+        intent.setAction(ACTION_START);
+        try {
+            context.startForegroundService(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "startForegroundService failed: " + e.getMessage());
+        }
+    }
+
+    /** Something is about to change (launch, stop) — probe fast for a while. */
+    public static void poke(Context context) {
+        ServerMonitorService svc = instance;
+        if (svc != null) {
+            svc.requestFast();
+            return;
+        }
+        Intent intent = new Intent(context, ServerMonitorService.class);
+        intent.setAction(ACTION_POKE);
+        try {
+            context.startForegroundService(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "poke failed: " + e.getMessage());
+        }
+    }
+
+    public static void stopServer(Context context, int port) {
+        Intent intent = new Intent(context, ServerMonitorService.class);
+        intent.setAction(ACTION_STOP_SERVER);
+        intent.putExtra(EXTRA_PORT, port);
+        try {
+            context.startForegroundService(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "stopServer intent failed: " + e.getMessage());
+        }
+    }
+
+    /** Stop (and optionally relaunch) several servers in one pass. */
+    public static void bulk(Context context, int[] ports, boolean restart) {
+        Intent intent = new Intent(context, ServerMonitorService.class);
+        intent.setAction(ACTION_BULK);
+        intent.putExtra(EXTRA_PORTS, ports);
+        intent.putExtra(EXTRA_RESTART, restart);
+        try {
+            context.startForegroundService(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "bulk intent failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Last probe result for a port if it is younger than maxAgeMs, otherwise null
+     * (service not running or port not probed recently) — callers then probe themselves.
+     */
+    public static Boolean knownAlive(int port, long maxAgeMs) {
+        long[] probe = lastProbe.get(port);
+        if (probe == null || instance == null) return null;
+        if (System.currentTimeMillis() - probe[0] > maxAgeMs) return null;
+        return probe[1] != 0;
+    }
+
+    // --- Service lifecycle ---
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        instance = this;
+        sampler = new ResourceSampler(this);
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+            "Server monitor", NotificationManager.IMPORTANCE_LOW);
+        channel.setShowBadge(false);
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        if (nm != null) nm.createNotificationChannel(channel);
+        reloadTargets();
+        log("Monitor service started");
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        startForeground(NOTIFICATION_ID, buildNotification());
+        String action = intent != null ? intent.getAction() : null;
+
+        if (ACTION_QUIT.equals(action)) {
+            log("Monitor service stopped from notification");
+            stopForeground(true);
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        if (ACTION_STOP_SERVER.equals(action)) {
+            handleStopServer(intent.getIntExtra(EXTRA_PORT, -1));
+        } else if (ACTION_BULK.equals(action)) {
+            int[] ports = intent.getIntArrayExtra(EXTRA_PORTS);
+            if (ports != null) handleBulk(ports, intent.getBooleanExtra(EXTRA_RESTART, false));
+        } else if (ACTION_POKE.equals(action)) {
+            requestFast();
+        }
+
+        if (probeThread == null) {
+            probing = true;
+            probeThread = new Thread(new ProbeRunnable(), "server-monitor");
+            probeThread.setDaemon(true);
+            probeThread.start();
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        probing = false;
+        synchronized (wakeLock) {
+            wakeRequested = true;
+            wakeLock.notifyAll();
+        }
+        if (probeThread != null) probeThread.interrupt();
+        instance = null;
+        lastProbe.clear();
+        super.onDestroy();
+    }
+
+    // --- API for bound clients ---
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.onServersUpdated(servers);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Visible clients cap the stable interval at VISIBLE_MAX_INTERVAL_MS. */
+    public void setClientVisible(boolean visible) {
+        synchronized (wakeLock) {
+            visibleClients = Math.max(0, visibleClients + (visible ? 1 : -1));
+        }
+        if (visible) requestFast();
+    }
+
+    public List<ServerState> getServers() {
+        return servers;
+    }
+
+    /** Snapshot of the service log, oldest first. */
+    public String[] copyLog() {
+        synchronized (logRing) {
+            String[] out = new String[logRing.size()];
+            for (int i = 0; i < out.length; i++) out[i] = logRing.get(i);
+            return out;
+        }
+    }
+
+    public void log(String msg) {
+        String line = System.currentTimeMillis() % 100000 + " " + msg;
+        synchronized (logRing) {
+            logRing.add(line);
+        }
+        for (Listener l : listeners) l.onLog(line);
+    }
+
+    public void requestFast() {
+        fastUntil = System.currentTimeMillis() + FAST_WINDOW_MS;
+        synchronized (wakeLock) {
+            wakeRequested = true;
+            wakeLock.notifyAll();
+        }
+    }
+
+    /** Rebuild the target list from AppConfig, keeping state of ports already tracked. */
+    public void reloadTargets() {
+        Map<Integer, ServerState> old = new HashMap<>();
+        for (ServerState s : servers) old.put(s.port, s);
+
+        List<ServerState> list = new ArrayList<>();
+        list.add(reuse(old, new ServerState("VoicePortal Proxy", PROXY_PORT, true, null, false)));
+
+        List<AppConfig> apps = AppConfig.loadAll(this);
+        java.util.Set<Integer> knownPorts = new java.util.HashSet<>();
+        knownPorts.add(PROXY_PORT);
+        for (int i = 0; i < apps.size(); i++) {
+            AppConfig app = apps.get(i);
+            if (!knownPorts.add(app.port)) continue;
+            list.add(reuse(old, new ServerState(app.name, app.port, false, app.projectPath, false)));
+        }
+
+        // Scan common dev ports not in config
+        for (int scanPort : SCAN_PORTS) {
+            if (!knownPorts.contains(scanPort)) {
+                list.add(reuse(old, new ServerState("Discovered", scanPort, false, null, true)));
+            }
+        }
+        servers = Collections.unmodifiableList(list);
+        log("Tracking " + knownPorts.size() + " configured + " + SCAN_PORTS.length + " scanned ports");
+    }
+
+    private static ServerState reuse(Map<Integer, ServerState> old, ServerState fresh) {
+        ServerState prev = old.get(fresh.port);
+        if (prev != null && prev.name.equals(fresh.name) && prev.isScanned == fresh.isScanned) {
+            return prev;
+        }
+        return fresh;
+    }
+
+    private void handleStopServer(int port) {
+        handleBulk(new int[]{port}, false);
+    }
+
+    /**
+     * One Termux intent stops every selected server; a background thread then
+     * watches all their ports with a combined scan and, for restarts, relaunches
+     * the configured apps in parallel once the ports are free.
+     */
+    private void handleBulk(int[] ports, boolean restart) {
+        List<ServerState> selected = new ArrayList<>();
+        List<ServerStopper.Target> targets = new ArrayList<>();
+        StringBuilder names = new StringBuilder();
+        for (ServerState s : servers) {
+            for (int port : ports) {
+                if (s.port != port) continue;
+                selected.add(s);
+                targets.add(new ServerStopper.Target(s.port, s.isProxy, s.projectPath));
+                if (names.length() > 0) names.append(", ");
+                names.append(s.name).append(':').append(s.port);
+            }
+        }
+        if (selected.isEmpty()) {
+            log("STOP ignored, unknown port(s)");
+            return;
+        }
+        log((restart ? "RESTART " : "STOP ") + names);
+        String err = ServerStopper.stopAll(this, targets);
+        log(err != null ? "ERR: " + err : "Intent sent OK");
+        requestFast();
+        if (err == null) {
+            Thread t = new Thread(new BulkRunnable(selected, restart), "server-bulk");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private class BulkRunnable implements Runnable {
+        private final List<ServerState> selected;
+        private final boolean restart;
+
+        BulkRunnable(List<ServerState> selected, boolean restart) {
+            this.selected = selected;
+            this.restart = restart;
+        }
+
+        @Override
+        public void run() {
+            List<Integer> ports = new ArrayList<>();
+            for (int i = 0; i < selected.size(); i++) ports.add(selected.get(i).port);
+
+            long start = System.currentTimeMillis();
+            java.util.Set<Integer> bound = ServerStopper.findBound(ports, 500);
+            while (!bound.isEmpty() && System.currentTimeMillis() - start < RELEASE_TIMEOUT_MS) {
+                try {
+                    Thread.sleep(RELEASE_POLL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                bound = ServerStopper.findBound(ports, 500);
+            }
+            long took = System.currentTimeMillis() - start;
+            if (!bound.isEmpty()) {
+                log("Still bound after " + took + "ms: " + bound +
+                    (restart ? " — restart aborted" : ""));
+                requestFast();
+                return;
+            }
+            log(ports.size() + " port(s) released in " + took + "ms");
+            requestFast();
+            if (!restart) return;
+
+            List<AppConfig> apps = AppConfig.loadAll(ServerMonitorService.this);
+            boolean kiosk = SettingsActivity.getKioskMode(ServerMonitorService.this);
+            for (int i = 0; i < selected.size(); i++) {
+                ServerState s = selected.get(i);
+                if (s.isProxy) {
+                    log("Proxy comes back with the app that uses it");
+                    continue;
+                }
+                AppConfig app = null;
+                for (int j = 0; j < apps.size(); j++) {
+                    if (apps.get(j).port == s.port) app = apps.get(j);
+                }
+                if (app == null) {
+                    log("No config for :" + s.port + ", not relaunched");
+                    continue;
+                }
+                // One-shot launcher: a watchdog started here could never be stopped
+                new ServerLauncher(ServerMonitorService.this, app, kiosk, false)
+                    .launch(new RelaunchCallback(app.name));
+            }
+        }
+    }
+
+    /** Routes a relaunch's progress into the monitor log. */
+    private class RelaunchCallback implements ServerLauncher.StatusCallback {
+        private final String name;
+        RelaunchCallback(String name) { this.name = name; }
+
+        @Override public void onDevServerStarting() { log(name + ": starting dev server"); }
+        @Override public void onProxyStarting() { log(name + ": starting proxy"); }
+        @Override public void onWaitingForServers() { requestFast(); }
+        @Override public void onServersReady() { log(name + ": ready"); requestFast(); }
+        @Override public void onError(String message) {
+            log(name + ": ERR " + message.split("\n", 2)[0]);
+        }
+        @Override public void onLog(String message) { log(name + ": " + message); }
+    }
+
+    // --- Probe loop ---
+
+    private class ProbeRunnable implements Runnable {
+        @Override
+        public void run() {
+            int interval = FAST_INTERVAL_MS;
+            long lastSample = 0;
+            long lastAnyUp = System.currentTimeMillis();
+
+            while (probing) {
+                List<ServerState> list = servers;
+                boolean changed = false;
+                boolean anyUp = false;
+                for (int i = 0; i < list.size(); i++) {
+                    ServerState s = list.get(i);
+                    boolean wasRunning = s.running;
+                    boolean wasSlow = s.slow;
+                    if (s.isProxy) {
+                        checkProxyHealth(s);
+                    } else {
+                        checkPortAlive(s);
+                    }
+                    lastProbe.put(s.port, new long[]{System.currentTimeMillis(), s.running ? 1 : 0});
+                    if (wasRunning != s.running) {
+                        log(s.name + ":" + s.port + " " + (s.running ? "UP" : "DOWN"));
+                        changed = true;
+                    }
+                    if (wasSlow != s.slow) changed = true;
+                    if (s.running && !s.isScanned) anyUp = true;
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSample >= SAMPLE_INTERVAL_MS) {
+                    lastSample = now;
+                    if (sampleResources(list)) changed = true;
+                }
+
+                for (Listener l : listeners) l.onServersUpdated(list);
+                updateNotification(list);
+
+                if (anyUp) lastAnyUp = now;
+                if (listeners.isEmpty() && now - lastAnyUp > IDLE_STOP_MS) {
+                    log("No servers up for " + (IDLE_STOP_MS / 60000) + " min, monitor service exiting");
+                    stopSelf();
+                    return;
+                }
+
+                int maxInterval = visibleClients > 0 ? VISIBLE_MAX_INTERVAL_MS : BACKGROUND_MAX_INTERVAL_MS;
+                if (changed || now < fastUntil) {
+                    interval = FAST_INTERVAL_MS;
+                } else {
+                    interval = Math.min(interval * 2, maxInterval);
+                }
+
+                try {
+                    synchronized (wakeLock) {
+                        if (!wakeRequested) wakeLock.wait(interval);
+                        wakeRequested = false;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sample CPU/RSS/FDs for every running server's process tree in one /proc snapshot.
+     * Returns true when a warning appeared or cleared.
+     */
+    private boolean sampleResources(List<ServerState> list) {
+        List<ResourceSampler.Target> targets = new ArrayList<>();
+        List<ServerState> sampled = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            ServerState s = list.get(i);
+            if (!s.running) {
+                s.resources = "";
+                s.resourceWarning = false;
+                continue;
+            }
+            String match = s.isProxy ? "proxy/server.js" : s.projectPath;
+            targets.add(new ResourceSampler.Target(s.port, match));
+            sampled.add(s);
+        }
+        if (targets.isEmpty() || !sampler.sample(targets)) return false;
+
+        boolean changed = false;
+        for (int i = 0; i < sampled.size(); i++) {
+            ServerState s = sampled.get(i);
+            ResourceSampler.Stats stats = sampler.getStats(s.port);
+            s.resources = stats.summary();
+            boolean warn = stats.warning() != null;
+            if (warn != s.resourceWarning) changed = true;
+            s.resourceWarning = warn;
+            String warning = stats.newWarning();
+            if (warning != null) {
+                log("WARN " + s.name + ":" + s.port + " " + warning);
+            }
+        }
+        return changed;
+    }
+
+    private void checkProxyHealth(ServerState entry) {
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL("http://127.0.0.1:" + entry.port + "/health");
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(2000);
+            conn.setRequestMethod("GET");
+            int code = conn.getResponseCode();
+
+            if (code >= 200 && code < 300) {
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream()));
+                StringBuilder sb = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    sb.append(line);
+                }
+                reader.close();
+
+                entry.running = true;
+                entry.details = parseHealthJson(sb.toString());
+            } else {
+                entry.running = true;
+                entry.details = "HTTP " + code;
+            }
+        } catch (Exception e) {
+            entry.running = false;
+            entry.details = "Not responding";
+        } finally {
+            if (conn != null) conn.disconnect();
+        }
+    }
+
+    private String parseHealthJson(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            StringBuilder sb = new StringBuilder();
+
+            if (obj.has("sessionId")) {
+                String sid = obj.getString("sessionId");
+                if (sid != null && !sid.equals("null") && !sid.isEmpty()) {
+                    sb.append("Session: ").append(sid);
+                }
+            }
+            if (obj.has("requestCount")) {
+                if (sb.length() > 0) sb.append(" | ");
+                sb.append("Req: ").append(obj.getInt("requestCount"));
+            }
+            if (obj.has("uptime")) {
+                if (sb.length() > 0) sb.append(" | ");
+                int secs = obj.getInt("uptime");
+                if (secs >= 3600) {
+                    sb.append(secs / 3600).append("h").append((secs % 3600) / 60).append("m");
+                } else if (secs >= 60) {
+                    sb.append(secs / 60).append("m").append(secs % 60).append("s");
+                } else {
+                    sb.append(secs).append("s");
+                }
+            }
+            if (sb.length() == 0) sb.append("Healthy");
+            return sb.toString();
+        } catch (Exception e) {
+            return "Healthy (parse err)";
+        }
+    }
+
+    /**
+     * Raw-socket HTTP probe so connect, time-to-first-byte and total time can be
+     * measured separately (HttpURLConnection hides the connect phase). The body is
+     * drained up to Content-Length or EOF, capped at PROBE_MAX_BODY.
+     */
+    private void checkPortAlive(ServerState entry) {
+        Socket socket = new Socket();
+        byte[] buf = new byte[8192];
+        try {
+            long start = System.nanoTime();
+            socket.connect(new InetSocketAddress("127.0.0.1", entry.port), PROBE_TIMEOUT_MS);
+            long connected = System.nanoTime();
+            socket.setSoTimeout(PROBE_TIMEOUT_MS);
+
+            OutputStream out = socket.getOutputStream();
+            String req = "GET / HTTP/1.1\r\nHost: 127.0.0.1:" + entry.port +
+                "\r\nAccept: */*\r\nConnection: close\r\n\r\n";
+            out.write(req.getBytes("US-ASCII"));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            int n = in.read(buf);
+            if (n <= 0) throw new java.io.IOException("empty response");
+            long firstByte = System.nanoTime();
+
+            // Headers normally fit in the first read, but a short read can split even the
+            // status line: read on until the header block ends (or the buffer is full)
+            String head = new String(buf, 0, n, "ISO-8859-1");
+            int headerEnd = head.indexOf("\r\n\r\n");
+            while (headerEnd < 0 && n < buf.length) {
+                int r = in.read(buf, n, buf.length - n);
+                if (r < 0) break;
+                n += r;
+                head = new String(buf, 0, n, "ISO-8859-1");
+                headerEnd = head.indexOf("\r\n\r\n");
+            }
+            int statusEnd = head.indexOf("\r\n");
+            if (!head.startsWith("HTTP/") || statusEnd < 12) {
+                throw new java.io.IOException("bad status line");
+            }
+            int code = Integer.parseInt(head.substring(9, 12));
+            long contentLength = -1;
+            if (headerEnd > 0) {
+                String headers = head.substring(0, headerEnd).toLowerCase(java.util.Locale.US);
+                int cl = headers.indexOf("\r\ncontent-length:");
+                if (cl >= 0) {
+                    int eol = headers.indexOf("\r\n", cl + 2);
+                    String v = headers.substring(cl + 17, eol < 0 ? headers.length() : eol).trim();
+                    contentLength = Long.parseLong(v);
+                }
+            }
+            long bodyRead = headerEnd > 0 ? n - (headerEnd + 4) : 0;
+            while ((contentLength < 0 || bodyRead < contentLength) && bodyRead < PROBE_MAX_BODY) {
+                int r = in.read(buf);
+                if (r < 0) break;
+                bodyRead += r;
+            }
+            long done = System.nanoTime();
+
+            entry.running = (code >= 200 && code < 500);
+            entry.details = entry.running ? "HTTP " + code : "Not responding";
+            if (entry.running) {
+                entry.connectHist.record((connected - start) / 1000);
+                entry.ttfbHist.record((firstByte - connected) / 1000);
+                entry.totalHist.record((done - start) / 1000);
+                updateLatencySummary(entry);
+            }
+        } catch (Exception e) {
+            entry.running = false;
+            entry.details = "Not responding";
+        } finally {
+            try { socket.close(); } catch (Exception ignore) {}
+        }
+    }
+
+    private void updateLatencySummary(ServerState entry) {
+        long p95 = entry.totalHist.percentile(95);
+        entry.slow = p95 >= SLOW_P95_US;
+        entry.latency = "p50 " + LatencyHistogram.format(entry.totalHist.percentile(50)) +
+            " · p95 " + LatencyHistogram.format(p95) +
+            " · p99 " + LatencyHistogram.format(entry.totalHist.percentile(99)) +
+            "  (conn " + LatencyHistogram.format(entry.connectHist.percentile(50)) +
+            ", ttfb " + LatencyHistogram.format(entry.ttfbHist.percentile(50)) +
+            ", n=" + entry.totalHist.count() + ")";
+    }
+
+    // --- Notification ---
+
+    private Notification buildNotification() {
+        return buildNotification(servers);
+    }
+
+    private Notification buildNotification(List<ServerState> list) {
+        int up = 0;
+        Notification.InboxStyle style = new Notification.InboxStyle();
+        StringBuilder text = new StringBuilder();
+        List<ServerState> stoppable = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            ServerState s = list.get(i);
+            if (s.isScanned && !s.running) continue;
+            if (s.running) up++;
+            StringBuilder line = new StringBuilder();
+            line.append(s.running ? "● " : "○ ").append(s.name).append(" :").append(s.port)
+                .append(s.running ? " UP" : " down");
+            if (s.running && s.slow) line.append(" · slow");
+            if (s.running && s.resourceWarning) line.append(" · ⚠ resources");
+            style.addLine(line);
+            text.append(line).append('\n');
+            if (s.running && !s.isProxy && stoppable.size() < MAX_STOP_ACTIONS) stoppable.add(s);
+        }
+        String title = up == 0 ? "No servers running" : up + (up == 1 ? " server up" : " servers up");
+        style.setBigContentTitle(title);
+        lastNotificationText = title + "\n" + text;
+
+        Intent open = new Intent(this, ServerMonitorActivity.class);
+        PendingIntent openPi = PendingIntent.getActivity(this, 0, open,
+            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        Notification.Builder b = new Notification.Builder(this, CHANNEL_ID)
+            .setSmallIcon(R.drawable.ic_launcher)
+            .setContentTitle(title)
+            .setContentText("VoicePortal server monitor")
+            .setStyle(style)
+            .setContentIntent(openPi)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setShowWhen(false);
+
+        for (int i = 0; i < stoppable.size(); i++) {
+            ServerState s = stoppable.get(i);
+            Intent stop = new Intent(this, ServerMonitorService.class);
+            stop.setAction(ACTION_STOP_SERVER);
+            stop.putExtra(EXTRA_PORT, s.port);
+            PendingIntent stopPi = PendingIntent.getService(this, s.port, stop,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+            b.addAction(new Notification.Action.Builder(null, "Stop " + s.name, stopPi).build());
+        }
+
+        Intent quit = new Intent(this, ServerMonitorService.class);
+        quit.setAction(ACTION_QUIT);
+        PendingIntent quitPi = PendingIntent.getService(this, 1, quit,
+            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        b.addAction(new Notification.Action.Builder(null, "Quit monitor", quitPi).build());
+        return b.build();
+    }
+
+    /** Re-post the notification only when its visible text changed. */
+    private void updateNotification(List<ServerState> list) {
+        String before = lastNotificationText;
+        Notification n = buildNotification(list);
+        if (lastNotificationText.equals(before)) return;
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        if (nm != null) nm.notify(NOTIFICATION_ID, n);
+    }
+}
@@ -0,0 +1,275 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.util.Base64;
+import android.util.Log;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds and sends the Termux command that stops dev servers (and/or the VoicePortal
+ * proxy) by killing the process trees behind their ports. Any number of servers go
+ * out in one intent and share one /proc snapshot. Shared by the monitor screen and
+ * the monitor service's notification actions.
+ */
+public class ServerStopper {
+    private static final String TAG = "ServerStopper";
+
+    /** One server to stop: its port, plus a cmdline fragment identifying its processes. */
+    public static class Target {
+        public final int port;
+        public final boolean isProxy;
+        public final String projectPath;
+
+        public Target(int port, boolean isProxy, String projectPath) {
+            this.port = port;
+            this.isProxy = isProxy;
+            this.projectPath = projectPath;
+        }
+    }
+
+    // Kill strategy for Termux/Android:
+    // - /proc/net/tcp is permission-denied → fuser/lsof/ss/netstat don't work
+    // - /proc/*/fd/ IS readable (same UID in Termux)
+    // - /proc/*/cmdline IS readable
+    //
+    // The script reads /proc once (pid -> ppid, cmdline) and ranks candidates per
+    // port in tiers: 0 project path in cmdline, 1 port as a whole token in cmdline
+    // (":3000", "=3000", " 3000"), 2 bash wrappers under projekty, 3 projekty
+    // processes holding a socket. Tiers 0 and 1 name the server, so they are killed
+    // for every target at once (tier 1 only for ports still bound, checked with one
+    // non-blocking connect scan over all ports); the trees matched for a port that
+    // survives SIGTERM get SIGKILL, those of freed ports don't. Tiers 2 and 3 are
+    // guesses that also match other dev servers and shells: those trees are SIGTERMed
+    // one at a time, stopping as soon as the port is free, and are never SIGKILLed.
+    // Exit status 0 means every port was released.
+    private static final String STOP_SCRIPT = "import os,re,signal,socket,sys,time,select\n"
+        + "me={os.getpid(),os.getppid()}\n"
+        + "specs=[]\n"
+        + "for it in sys.argv[1].split(','):\n"
+        + " p,_,path=it.partition('|')\n"
+        + " specs.append((int(p),path))\n"
+        + "snap={}\n"
+        + "for d in os.listdir('/proc'):\n"
+        + " if not d.isdigit():continue\n"
+        + " try:\n"
+        + "  with open(f'/proc/{d}/cmdline','rb') as f:c=f.read().replace(b'\\0',b' ').decode('utf-8','replace').strip()\n"
+        + "  pp=0\n"
+        + "  with open(f'/proc/{d}/status') as f:\n"
+        + "   for l in f:\n"
+        + "    if l.startswith('PPid:'):pp=int(l.split()[1]);break\n"
+        + "  snap[int(d)]=(pp,c)\n"
+        + " except:pass\n"
+        + "kids={}\n"
+        + "for pid,(pp,c) in snap.items():kids.setdefault(pp,[]).append(pid)\n"
+        + "def tree(pid):\n"
+        + " t=[pid];i=0\n"
+        + " while i<len(t):t.extend(kids.get(t[i],[]));i+=1\n"
+        + " return t\n"
+        + "sockc={}\n"
+        + "def has_socket(pid):\n"
+        + " if pid not in sockc:\n"
+        + "  r=False\n"
+        + "  try:\n"
+        + "   for fd in os.listdir(f'/proc/{pid}/fd'):\n"
+        + "    try:\n"
+        + "     if 'socket:' in os.readlink(f'/proc/{pid}/fd/{fd}'):r=True;break\n"
+        + "    except:pass\n"
+        + "  except:pass\n"
+        + "  sockc[pid]=r\n"
+        + " return sockc[pid]\n"
+        + "tiers={}\n"
+        + "readers=[]\n"
+        + "for port,path in specs:\n"
+        + " pr=re.compile(r'(?:^|[\\s:=])'+str(port)+r'(?![0-9])');lv=[[],[],[],[]];lp=str(min(port+10000,65530))\n"
+        + " for pid,(pp,c) in snap.items():\n"
+        + "  if pid in me or not c:continue\n"
+        + "  if c=='claude' or c.startswith('claude '):continue\n"
+        + "  if 'logreader.py' in c and lp in c:readers.append(pid)\n"
+        + "  elif path and path in c:lv[0].append(pid)\n"
+        + "  elif pr.search(c):lv[1].append(pid)\n"
+        + "  elif 'bash' in c and 'projekty' in c:lv[2].append(pid)\n"
+        + "  elif 'projekty' in c and has_socket(pid):lv[3].append(pid)\n"
+        + " tiers[port]=lv\n"
+        + "killed={}\n"
+        + "def kill(pids,sig):\n"
+        + " n=0\n"
+        + " for p in reversed(pids):\n"
+        + "  if p in me:continue\n"
+        + "  try:os.kill(p,sig);n+=1\n"
+        + "  except:pass\n"
+        + " return n\n"
+        + "def batch(ports,lvl):\n"
+        + " out=[];seen=set()\n"
+        + " for pt in ports:\n"
+        + "  for root in tiers[pt][lvl]:\n"
+        + "   for p in tree(root):\n"
+        + "    killed.setdefault(pt,[]).append(p)\n"
+        + "    if p not in seen:seen.add(p);out.append(p)\n"
+        + " return out\n"
+        + "def bound(ports,timeout=0.5):\n"
+        + " socks={}\n"
+        + " for pt in ports:\n"
+        + "  s=socket.socket();s.setblocking(False)\n"
+        + "  s.connect_ex(('127.0.0.1',pt));socks[s]=pt\n"
+        + " up=set();pend=set(socks);end=time.time()+timeout\n"
+        + " while pend:\n"
+        + "  left=end-time.time()\n"
+        + "  if left<=0:break\n"
+        + "  _,w,_=select.select([],list(pend),[],left)\n"
+        + "  for s in w:\n"
+        + "   pend.discard(s)\n"
+        + "   if s.getsockopt(socket.SOL_SOCKET,socket.SO_ERROR)==0:up.add(socks[s])\n"
+        + " for s in socks:s.close()\n"
+        + " return up\n"
+        + "kill(readers,signal.SIGTERM)\n"
+        + "busy=set(p for p,_ in specs)\n"
+        + "for lvl in (0,1):\n"
+        + " pids=batch(busy if lvl else [p for p,_ in specs],lvl)\n"
+        + " if not pids:continue\n"
+        + " print(f'tier {lvl}: SIGTERM {kill(pids,signal.SIGTERM)} pids')\n"
+        + " time.sleep(0.5)\n"
+        + " busy=bound(busy)\n"
+        + " if not busy:break\n"
+        + "stuck=list(dict.fromkeys(p for pt in busy for p in killed.get(pt,[])))\n"
+        + "if stuck:\n"
+        + " print(f'SIGKILL {kill(stuck,signal.SIGKILL)} pids')\n"
+        + " time.sleep(0.3)\n"
+        + " busy=bound(busy)\n"
+        + "done=set(p for t in killed.values() for p in t)\n"
+        + "for lvl in (2,3):\n"
+        + " for pt,_ in specs:\n"
+        + "  for root in tiers[pt][lvl]:\n"
+        + "   if pt not in busy:break\n"
+        + "   if root in done:continue\n"
+        + "   t=[p for p in tree(root) if p not in done]\n"
+        + "   done.update(t)\n"
+        + "   print(f'tier {lvl} port {pt}: SIGTERM {kill(t,signal.SIGTERM)} pids of {root}')\n"
+        + "   time.sleep(0.5)\n"
+        + "   busy=bound(busy)\n"
+        + "for p,_ in specs:print(f'port {p} '+('still bound' if p in busy else 'freed'))\n"
+        + "sys.exit(1 if busy else 0)\n";
+
+    /** Send the stop command. Returns null on success, error message on failure. */
+    public static String stop(Context context, int port, boolean isProxy, String projectPath) {
+        List<Target> one = new ArrayList<>();
+        one.add(new Target(port, isProxy, projectPath));
+        return stopAll(context, one);
+    }
+
+    /** Stop several servers with one Termux intent. Returns null on success, error message on failure. */
+    public static String stopAll(Context context, List<Target> targets) {
+        if (targets.isEmpty()) return null;
+        return TermuxCommandRunner.runInBackground(context, buildStopCommand(targets), null);
+    }
+
+    public static String buildStopCommand(List<Target> targets) {
+        StringBuilder cmd = new StringBuilder();
+        StringBuilder spec = new StringBuilder();
+        boolean hasProxy = false;
+        for (int i = 0; i < targets.size(); i++) {
+            Target t = targets.get(i);
+            String match = t.isProxy ? "proxy/server.js" : t.projectPath;
+            if (t.isProxy) hasProxy = true;
+            if (spec.length() > 0) spec.append(',');
+            spec.append(t.port).append('|');
+            if (match != null) spec.append(match);
+        }
+
+        // The daemon respawns the proxy, so it goes first
+        if (hasProxy) {
+            cmd.append("pkill -f voiceportal-daemon 2>/dev/null; ");
+        }
+
+        String b64 = Base64.encodeToString(STOP_SCRIPT.getBytes(), Base64.NO_WRAP);
+        cmd.append("echo '").append(b64).append("' | base64 -d | python3 - '")
+           .append(spec).append("' 2>/dev/null || { ");
+
+        // Fallback when some port stayed bound (or python3 is missing): pkill patterns
+        for (int i = 0; i < targets.size(); i++) {
+            Target t = targets.get(i);
+            if (t.isProxy) {
+                cmd.append("pkill -f 'node.*proxy/server.js'; ");
+                continue;
+            }
+            int port = t.port;
+            cmd.append("pkill -f ' ").append(port).append("$' 2>/dev/null; ");
+            cmd.append("pkill -f ' ").append(port).append(" ' 2>/dev/null; ");
+            cmd.append("pkill -f ':").append(port).append("' 2>/dev/null; ");
+            cmd.append("pkill -f '=").append(port).append("' 2>/dev/null; ");
+            cmd.append("pkill -f -- '--port=").append(port).append("' 2>/dev/null; ");
+            if (t.projectPath != null && !t.projectPath.isEmpty()) {
+                cmd.append("pkill -f '").append(t.projectPath).append("' 2>/dev/null; ");
+            }
+        }
+        cmd.append("true; }; echo DONE");
+        return cmd.toString();
+    }
+
+    /**
+     * Ports from the list that still accept connections, checked with one
+     * non-blocking connect per port sharing a single selector wait.
+     */
+    public static Set<Integer> findBound(List<Integer> ports, int timeoutMs) {
+        Set<Integer> bound = new HashSet<>();
+        Selector selector = null;
+        List<SocketChannel> channels = new ArrayList<>();
+        try {
+            selector = Selector.open();
+            int pending = 0;
+            for (int i = 0; i < ports.size(); i++) {
+                int port = ports.get(i);
+                SocketChannel ch = SocketChannel.open();
+                channels.add(ch);
+                ch.configureBlocking(false);
+                try {
+                    if (ch.connect(new InetSocketAddress("127.0.0.1", port))) {
+                        bound.add(port);
+                    } else {
+                        ch.register(selector, SelectionKey.OP_CONNECT, port);
+                        pending++;
+                    }
+                } catch (IOException refused) {
+                    // Nothing listening
+                }
+            }
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (pending > 0) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0 || selector.select(left) == 0) break;
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    key.cancel();
+                    pending--;
+                    try {
+                        if (((SocketChannel) key.channel()).finishConnect()) {
+                            bound.add((Integer) key.attachment());
+                        }
+                    } catch (IOException refused) {
+                        // Nothing listening
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Port scan failed: " + e.getMessage());
+        } finally {
+            for (int i = 0; i < channels.size(); i++) {
+                try { channels.get(i).close(); } catch (IOException ignore) {}
+            }
+            if (selector != null) {
+                try { selector.close(); } catch (IOException ignore) {}
+            }
+        }
+        return bound;
+    }
+}
@@ -1,9 +1,11 @@
 package com.voiceportal.launcher;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
 
@@ -12,10 +14,17 @@ public class SettingsActivity extends Activity implements View.OnClickListener {
     private static final String PREFS_NAME = "voiceportal_settings";
     public static final String KEY_HIDE_TAB_BAR = "hide_tab_bar";
     public static final String KEY_KIOSK_MODE = "kiosk_mode";
+    public static final String KEY_TAB_MEMORY_MB = "tab_memory_mb";
+
+    /** Budget choices cycled by the button; one live tab is estimated at TAB_COST_MB. */
+    private static final int[] TAB_MEMORY_CHOICES_MB = {256, 512, 768, 1024, 1536};
+    private static final int DEFAULT_TAB_MEMORY_MB = 512;
+    public static final int TAB_COST_MB = 160;
 
     private SharedPreferences prefs;
     private CheckBox hideTabBarCheckbox;
     private CheckBox kioskModeCheckbox;
+    private Button tabMemoryButton;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,12 +43,32 @@ public class SettingsActivity extends Activity implements View.OnClickListener {
 
         hideTabBarCheckbox.setOnCheckedChangeListener(new HideTabBarListener());
         kioskModeCheckbox.setOnCheckedChangeListener(new KioskModeListener());
+
+        tabMemoryButton = findViewById(R.id.setting_tab_memory);
+        tabMemoryButton.setOnClickListener(this);
+        updateTabMemoryButton();
+    }
+
+    private void updateTabMemoryButton() {
+        int mb = getTabMemoryBudgetMb(this);
+        int tabs = Math.max(1, mb / TAB_COST_MB);
+        tabMemoryButton.setText(mb + " MB · " + tabs + (tabs == 1 ? " tab" : " tabs"));
     }
 
     @Override
     public void onClick(View v) {
         if (v.getId() == R.id.back_button) {
             finish();
+        } else if (v.getId() == R.id.setting_tab_memory) {
+            int current = getTabMemoryBudgetMb(this);
+            int next = TAB_MEMORY_CHOICES_MB[0];
+            for (int i = 0; i < TAB_MEMORY_CHOICES_MB.length; i++) {
+                if (TAB_MEMORY_CHOICES_MB[i] == current) {
+                    next = TAB_MEMORY_CHOICES_MB[(i + 1) % TAB_MEMORY_CHOICES_MB.length];
+                }
+            }
+            prefs.edit().putInt(KEY_TAB_MEMORY_MB, next).apply();
+            updateTabMemoryButton();
         }
     }
 
@@ -48,11 +77,16 @@ public class SettingsActivity extends Activity implements View.OnClickListener {
                 .getBoolean(KEY_HIDE_TAB_BAR, false);
     }
 
-    public static boolean getKioskMode(Activity activity) {
-        return activity.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+    public static boolean getKioskMode(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
                 .getBoolean(KEY_KIOSK_MODE, false);
     }
 
+    public static int getTabMemoryBudgetMb(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                .getInt(KEY_TAB_MEMORY_MB, DEFAULT_TAB_MEMORY_MB);
+    }
+
     private class HideTabBarListener implements CompoundButton.OnCheckedChangeListener {
         @Override
         public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
@@ -0,0 +1,224 @@
+package com.voiceportal.launcher;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Files shared into the app (ACTION_SEND), exposed to pages as
+ * https://vp.local/share/<token> and streamed from the ContentResolver by
+ * shouldInterceptRequest. The page fetch()es the bytes (whole, or by Range)
+ * instead of receiving a base64 string through evaluateJavascript, so nothing
+ * is held in memory on our side.
+ *
+ * Tokens are unguessable and expire after TTL_MS; only the last MAX_ENTRIES
+ * shares are kept. The URI read grant lives as long as the receiving activity.
+ */
+public class SharedContent {
+    private static final String TAG = "SharedContent";
+    public static final String HOST = "vp.local";
+    private static final String PATH_PREFIX = "/share/";
+    private static final long TTL_MS = 30 * 60 * 1000;
+    private static final int MAX_ENTRIES = 8;
+
+    private static ContentResolver resolver;
+    private static final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /** A registered share; url is what the page fetches. */
+    public static class Entry {
+        public final String url;
+        public final String name;
+        public final String mime;
+        public final long size;   // -1 when the provider doesn't say
+        final Uri uri;
+        final long created;
+
+        Entry(String url, Uri uri, String name, String mime, long size) {
+            this.url = url;
+            this.uri = uri;
+            this.name = name;
+            this.mime = mime;
+            this.size = size;
+            this.created = System.currentTimeMillis();
+        }
+    }
+
+    /** Register a content URI and return its entry (name, type and size resolved once here). */
+    public static synchronized Entry register(Context context, Uri uri, String fallbackMime) {
+        resolver = context.getApplicationContext().getContentResolver();
+        String name = "shared.dxf";
+        long size = -1;
+        try {
+            Cursor cursor = resolver.query(uri, null, null, null, null);
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    int nameIdx = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                    int sizeIdx = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    if (nameIdx >= 0 && cursor.getString(nameIdx) != null
+                            && !cursor.getString(nameIdx).isEmpty()) {
+                        name = cursor.getString(nameIdx);
+                    }
+                    if (sizeIdx >= 0 && !cursor.isNull(sizeIdx)) size = cursor.getLong(sizeIdx);
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Metadata query failed: " + e.getMessage());
+        }
+        String mime = resolver.getType(uri);
+        if (mime == null) mime = fallbackMime != null ? fallbackMime : "application/octet-stream";
+
+        expire();
+        String token = UUID.randomUUID().toString().replace("-", "");
+        Entry entry = new Entry("https://" + HOST + PATH_PREFIX + token, uri, name, mime, size);
+        entries.put(token, entry);
+        while (entries.size() > MAX_ENTRIES) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        return entry;
+    }
+
+    public static boolean handles(WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        return HOST.equals(request.getUrl().getHost()) && path != null && path.startsWith(PATH_PREFIX);
+    }
+
+    /** Called on WebView's IO thread. Supports a single "bytes=a-b" Range. */
+    public static WebResourceResponse serve(WebResourceRequest request) {
+        Map<String, String> headers = corsHeaders();
+        if ("OPTIONS".equals(request.getMethod())) {
+            return new WebResourceResponse("text/plain", "UTF-8", 204, "No Content", headers,
+                new ByteArrayInputStream(new byte[0]));
+        }
+
+        Entry entry;
+        synchronized (SharedContent.class) {
+            expire();
+            entry = entries.get(request.getUrl().getPath().substring(PATH_PREFIX.length()));
+        }
+        if (entry == null) return error(404, "Not Found", headers);
+
+        try {
+            long start = 0;
+            long end = entry.size - 1;
+            boolean partial = false;
+            String range = headerIgnoreCase(request.getRequestHeaders(), "Range");
+            if (range != null && range.startsWith("bytes=") && entry.size >= 0) {
+                String spec = range.substring(6);
+                int dash = spec.indexOf('-');
+                if (dash < 0 || spec.indexOf(',') >= 0) return error(416, "Range Not Satisfiable", headers);
+                String a = spec.substring(0, dash).trim();
+                String b = spec.substring(dash + 1).trim();
+                if (a.isEmpty()) {
+                    start = Math.max(0, entry.size - Long.parseLong(b));   // suffix range
+                } else {
+                    start = Long.parseLong(a);
+                    if (!b.isEmpty()) end = Math.min(Long.parseLong(b), entry.size - 1);
+                }
+                if (start > end) return error(416, "Range Not Satisfiable", headers);
+                partial = true;
+            }
+
+            InputStream in = resolver.openInputStream(entry.uri);
+            if (in == null) return error(404, "Not Found", headers);
+            if (start > 0) skipFully(in, start);
+            if (partial) in = new BoundedInputStream(in, end - start + 1);
+
+            headers.put("Content-Disposition", "inline; filename=\"" + entry.name.replace("\"", "") + "\"");
+            headers.put("Accept-Ranges", "bytes");
+            headers.put("Cache-Control", "no-store");
+            if (partial) {
+                headers.put("Content-Range", "bytes " + start + "-" + end + "/" + entry.size);
+                headers.put("Content-Length", String.valueOf(end - start + 1));
+            } else if (entry.size >= 0) {
+                headers.put("Content-Length", String.valueOf(entry.size));
+            }
+            return new WebResourceResponse(entry.mime, null, partial ? 206 : 200,
+                partial ? "Partial Content" : "OK", headers, in);
+        } catch (Exception e) {
+            Log.w(TAG, "Serve failed: " + e.getMessage());
+            return error(500, "Internal Error", headers);
+        }
+    }
+
+    private static void expire() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().created > TTL_MS) it.remove();
+        }
+    }
+
+    private static Map<String, String> corsHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Access-Control-Allow-Origin", "*");
+        headers.put("Access-Control-Allow-Methods", "GET, HEAD, OPTIONS");
+        headers.put("Access-Control-Allow-Headers", "Range");
+        headers.put("Access-Control-Expose-Headers",
+            "Content-Length, Content-Range, Content-Disposition, Accept-Ranges");
+        return headers;
+    }
+
+    private static String headerIgnoreCase(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            if (name.equalsIgnoreCase(h.getKey())) return h.getValue();
+        }
+        return null;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new IOException("Range past end of stream");
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private static WebResourceResponse error(int code, String reason, Map<String, String> headers) {
+        return new WebResourceResponse("text/plain", "UTF-8", code, reason, headers,
+            new ByteArrayInputStream(reason.getBytes()));
+    }
+
+    /** Stops after limit bytes, for Range responses. */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.voiceportal.launcher;
+
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves an app's production build (serveMode "static") straight from
+ * shouldInterceptRequest, so no Node process runs at all. Termux's home is not
+ * readable by our UID, so ServerLauncher first syncs the build output to
+ * SITES_ROOT/<id> on shared storage; pages load from https://<id>.vp.local/.
+ *
+ * Files are memory-mapped and the mappings of recently served files are kept
+ * (revalidated by mtime + size), so repeated loads are page-cache reads with
+ * no copying on our side. Unknown paths without an extension fall back to
+ * index.html for client-side routers.
+ */
+public class StaticSite {
+    private static final String TAG = "StaticSite";
+    public static final String SITES_ROOT = "/storage/emulated/0/VoicePortal/sites";
+    public static final String HOST_SUFFIX = ".vp.local";
+    private static final int MAPPED_ENTRIES = 64;
+
+    private static final Map<String, String> MIME = new HashMap<>();
+    static {
+        MIME.put("html", "text/html");
+        MIME.put("htm", "text/html");
+        MIME.put("js", "text/javascript");
+        MIME.put("mjs", "text/javascript");
+        MIME.put("css", "text/css");
+        MIME.put("json", "application/json");
+        MIME.put("map", "application/json");
+        MIME.put("webmanifest", "application/manifest+json");
+        MIME.put("txt", "text/plain");
+        MIME.put("xml", "application/xml");
+        MIME.put("svg", "image/svg+xml");
+        MIME.put("png", "image/png");
+        MIME.put("jpg", "image/jpeg");
+        MIME.put("jpeg", "image/jpeg");
+        MIME.put("gif", "image/gif");
+        MIME.put("webp", "image/webp");
+        MIME.put("avif", "image/avif");
+        MIME.put("ico", "image/x-icon");
+        MIME.put("woff", "font/woff");
+        MIME.put("woff2", "font/woff2");
+        MIME.put("ttf", "font/ttf");
+        MIME.put("otf", "font/otf");
+        MIME.put("wasm", "application/wasm");
+        MIME.put("mp3", "audio/mpeg");
+        MIME.put("wav", "audio/wav");
+        MIME.put("ogg", "audio/ogg");
+        MIME.put("mp4", "video/mp4");
+        MIME.put("webm", "video/webm");
+        MIME.put("pdf", "application/pdf");
+    }
+
+    private final String host;
+    private final File root;
+    private final Map<String, Mapped> mapped = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Mapped {
+        final MappedByteBuffer buffer;
+        final long mtime;
+        final long length;
+
+        Mapped(MappedByteBuffer buffer, long mtime, long length) {
+            this.buffer = buffer;
+            this.mtime = mtime;
+            this.length = length;
+        }
+    }
+
+    public StaticSite(String appId) {
+        this.host = appId + HOST_SUFFIX;
+        this.root = siteDir(appId);
+    }
+
+    public static File siteDir(String appId) {
+        return new File(SITES_ROOT, appId);
+    }
+
+    public static String siteUrl(String appId) {
+        return "https://" + appId + HOST_SUFFIX + "/";
+    }
+
+    /** App id from a site URL, or null when the URL is not a static site. */
+    public static String appIdFromUrl(String url) {
+        try {
+            String h = android.net.Uri.parse(url).getHost();
+            if (h != null && h.endsWith(HOST_SUFFIX)) {
+                return h.substring(0, h.length() - HOST_SUFFIX.length());
+            }
+        } catch (Exception e) {
+            // not a URL
+        }
+        return null;
+    }
+
+    public boolean handles(WebResourceRequest request) {
+        return host.equals(request.getUrl().getHost());
+    }
+
+    /** Called on WebView's IO thread. */
+    public WebResourceResponse serve(WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        if (path == null || path.isEmpty() || path.endsWith("/")) {
+            path = (path == null ? "/" : path) + "index.html";
+        }
+        File file = new File(root, path);
+        try {
+            // Refuse anything resolving outside the site root
+            if (!file.getCanonicalPath().startsWith(root.getCanonicalPath() + File.separator)) {
+                return error(403, "Forbidden");
+            }
+            if (!file.isFile()) {
+                String name = file.getName();
+                if (name.indexOf('.') >= 0) return error(404, "Not Found");
+                file = new File(root, "index.html");   // SPA route
+                if (!file.isFile()) return error(404, "Not Found");
+            }
+
+            ByteBuffer data = map(file);
+            String mime = mimeFor(file.getName());
+            boolean text = mime.startsWith("text/") || mime.endsWith("json")
+                || mime.endsWith("javascript") || mime.endsWith("xml");
+            WebResourceResponse r = new WebResourceResponse(mime, text ? "UTF-8" : null,
+                new ByteBufferInputStream(data));
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Length", String.valueOf(data.remaining()));
+            headers.put("Access-Control-Allow-Origin", "*");
+            // Hashed assets never change; the HTML shell must always be fresh
+            headers.put("Cache-Control", mime.equals("text/html")
+                ? "no-cache" : "public, max-age=31536000, immutable");
+            r.setResponseHeaders(headers);
+            return r;
+        } catch (Exception e) {
+            Log.w(TAG, "Serve failed for " + path + ": " + e.getMessage());
+            return error(500, "Internal Error");
+        }
+    }
+
+    /** Mapping of the file, reused while its mtime and size are unchanged. */
+    private ByteBuffer map(File file) throws Exception {
+        String key = file.getPath();
+        long mtime = file.lastModified();
+        long length = file.length();
+        synchronized (mapped) {
+            Mapped m = mapped.get(key);
+            if (m != null && m.mtime == mtime && m.length == length) {
+                return m.buffer.duplicate();
+            }
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedByteBuffer buffer;
+        try {
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } finally {
+            raf.close();
+        }
+        synchronized (mapped) {
+            mapped.put(key, new Mapped(buffer, mtime, length));
+            if (mapped.size() > MAPPED_ENTRIES) {
+                mapped.remove(mapped.keySet().iterator().next());
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    private static String mimeFor(String name) {
+        int dot = name.lastIndexOf('.');
+        String mime = dot >= 0 ? MIME.get(name.substring(dot + 1).toLowerCase(java.util.Locale.US)) : null;
+        return mime != null ? mime : "application/octet-stream";
+    }
+
+    private static WebResourceResponse error(int code, String reason) {
+        return new WebResourceResponse("text/plain", "UTF-8", code, reason,
+            new HashMap<String, String>(),
+            new java.io.ByteArrayInputStream(reason.getBytes()));
+    }
+
+    /** InputStream view of a (mapped) buffer; each response gets its own duplicate. */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
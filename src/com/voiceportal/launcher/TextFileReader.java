@@ -0,0 +1,152 @@
+package com.voiceportal.launcher;
+
+import android.os.Environment;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONObject;
+
+/**
+ * Piecewise UTF-8 reads of text files under Download/, for VPNative. readChunk()
+ * serves one byte range; Stream pushes a whole file to a Sink chunk by chunk,
+ * waiting for each to be consumed before reading on. Chunk boundaries never split
+ * a UTF-8 sequence, so every chunk decodes on its own and "next" is a valid offset.
+ *
+ * Chunk JSON: {"content": "...", "offset": n, "next": n, "size": n, "eof": bool}
+ */
+public class TextFileReader {
+    public static final int DEFAULT_CHUNK = 256 * 1024;
+    public static final int MAX_CHUNK = 4 * 1024 * 1024;
+
+    /** Receives chunks on the reader thread; return false to stop. */
+    public interface Sink {
+        boolean onChunk(String chunkJson) throws InterruptedException;
+        void onError(String message);
+    }
+
+    public static File resolve(String subPath, String filename) {
+        File downloads = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+        File dir = (subPath == null || subPath.isEmpty()) ? downloads : new File(downloads, subPath);
+        return new File(dir, filename);
+    }
+
+    public static int clampChunk(int maxBytes) {
+        // At least one whole 4-byte character per chunk
+        return maxBytes <= 0 ? DEFAULT_CHUNK : Math.max(16, Math.min(maxBytes, MAX_CHUNK));
+    }
+
+    /** Up to maxBytes from offset, cut back to the last complete UTF-8 character. */
+    public static String readChunk(File file, long offset, int maxBytes) throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long size = raf.length();
+            if (offset < 0 || offset > size) throw new IOException("Offset out of range: " + offset);
+            byte[] buf = new byte[(int) Math.min(clampChunk(maxBytes), size - offset)];
+            raf.seek(offset);
+            raf.readFully(buf);
+            int len = buf.length;
+            if (offset + len < size) len = completeLength(buf, len);
+            return chunkJson(new String(buf, 0, len, StandardCharsets.UTF_8), offset, offset + len, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /** Length of the prefix of buf that ends on a UTF-8 character boundary. */
+    private static int completeLength(byte[] buf, int len) {
+        int i = len - 1;
+        int back = 0;
+        // Walk back over continuation bytes (10xxxxxx) to the lead byte
+        while (i >= 0 && back < 3 && (buf[i] & 0xC0) == 0x80) {
+            i--;
+            back++;
+        }
+        if (i < 0) return len;
+        int lead = buf[i] & 0xFF;
+        int need = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return (len - i) < need ? i : len;
+    }
+
+    private static String chunkJson(String content, long offset, long next, long size) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("content", content);
+        o.put("offset", offset);
+        o.put("next", next);
+        o.put("size", size);
+        o.put("eof", next >= size);
+        return o.toString();
+    }
+
+    /** Reads a file start to end through a streaming decoder, one chunk in flight at a time. */
+    public static class Stream implements Runnable {
+        private final File file;
+        private final int chunkBytes;
+        private final Sink sink;
+        private volatile boolean cancelled;
+
+        public Stream(File file, int chunkBytes, Sink sink) {
+            this.file = file;
+            this.chunkBytes = clampChunk(chunkBytes);
+            this.sink = sink;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            FileInputStream in = null;
+            try {
+                if (!file.isFile()) {
+                    sink.onError("File not found: " + file.getAbsolutePath());
+                    return;
+                }
+                long size = file.length();
+                in = new FileInputStream(file);
+                CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer bytes = ByteBuffer.allocate(chunkBytes);
+                CharBuffer chars = CharBuffer.allocate(chunkBytes);
+                long offset = 0;   // bytes consumed by the decoder so far
+                boolean eof = false;
+                while (!cancelled) {
+                    int n = in.read(bytes.array(), bytes.position(), bytes.remaining());
+                    if (n < 0) eof = true;
+                    else bytes.position(bytes.position() + n);
+
+                    bytes.flip();
+                    int before = bytes.remaining();
+                    CoderResult cr = decoder.decode(bytes, chars, eof);
+                    if (cr.isError()) cr.throwException();
+                    if (eof) decoder.flush(chars);
+                    long next = offset + (before - bytes.remaining());
+                    bytes.compact();   // keeps a split multi-byte sequence for the next round
+
+                    chars.flip();
+                    if (chars.hasRemaining() || eof) {
+                        String json = chunkJson(chars.toString(), offset, eof ? size : next, size);
+                        if (!sink.onChunk(json)) return;
+                    }
+                    chars.clear();
+                    offset = next;
+                    if (eof) return;
+                }
+            } catch (InterruptedException e) {
+                // cancelled while waiting for the page
+            } catch (Exception e) {
+                sink.onError(e.getClass().getSimpleName() + ": " + e.getMessage());
+            } finally {
+                if (in != null) try { in.close(); } catch (IOException ignore) {}
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.voiceportal.launcher;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary upload endpoint for pages: VPNative.beginUpload(name, mime, subPath) returns
+ * http://127.0.0.1:<port>/upload/<token>, the page POSTs the Blob there, and the body
+ * is copied in BUFFER_SIZE chunks straight into a MediaStore Download/ item. No base64,
+ * no JS string, no whole-file byte[]: memory stays at one buffer per upload.
+ *
+ * shouldInterceptRequest never sees request bodies, hence a real socket. It listens on
+ * loopback only, and each token is single-use and expires after TOKEN_TTL_MS.
+ * The response body is the same "Download/..." path or "ERROR: ..." as saveFile().
+ */
+public class UploadServer {
+    private static final String TAG = "UploadServer";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TOKEN_TTL_MS = 10 * 60 * 1000;
+    private static final int SOCKET_TIMEOUT_MS = 30000;
+
+    private static UploadServer instance;
+
+    private final Context context;
+    private final ServerSocket serverSocket;
+    private final Map<String, Upload> uploads = new HashMap<>();
+
+    private static class Upload {
+        final String filename;
+        final String mimeType;
+        final String subPath;
+        final DownloadBatch batch;   // non-null: item `index` of a batch, published by its commit
+        final int index;
+        final long created = System.currentTimeMillis();
+
+        Upload(String filename, String mimeType, String subPath, DownloadBatch batch, int index) {
+            this.filename = filename;
+            this.mimeType = mimeType;
+            this.subPath = subPath;
+            this.batch = batch;
+            this.index = index;
+        }
+    }
+
+    public static synchronized UploadServer get(Context context) throws IOException {
+        if (instance == null) {
+            instance = new UploadServer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UploadServer(Context context) throws IOException {
+        this.context = context;
+        this.serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        Thread t = new Thread(new AcceptRunnable(), "vp-upload");
+        t.setDaemon(true);
+        t.start();
+        Log.d(TAG, "Listening on 127.0.0.1:" + serverSocket.getLocalPort());
+    }
+
+    /** One-shot URL the page POSTs the file body to. */
+    public String register(String filename, String mimeType, String subPath) {
+        return register(new Upload(filename, mimeType, subPath, null, 0));
+    }
+
+    /** One-shot URL for an item of a DownloadBatch; the batch's commit publishes it. */
+    public String registerBatchItem(DownloadBatch batch, int index, String filename) {
+        return register(new Upload(filename, null, null, batch, index));
+    }
+
+    private synchronized String register(Upload upload) {
+        long now = System.currentTimeMillis();
+        Iterator<Upload> it = uploads.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().created > TOKEN_TTL_MS) it.remove();
+        }
+        String token = UUID.randomUUID().toString().replace("-", "");
+        uploads.put(token, upload);
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/upload/" + token;
+    }
+
+    private synchronized Upload take(String token) {
+        Upload u = uploads.remove(token);
+        if (u != null && System.currentTimeMillis() - u.created > TOKEN_TTL_MS) return null;
+        return u;
+    }
+
+    private void handle(Socket socket) throws IOException {
+        socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+        InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        OutputStream out = socket.getOutputStream();
+
+        String requestLine = readLine(in);
+        if (requestLine == null) return;
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) {
+            respond(out, 400, "ERROR: bad request");
+            return;
+        }
+        String method = parts[0];
+        String path = parts[1];
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                    line.substring(colon + 1).trim());
+            }
+        }
+
+        if ("OPTIONS".equals(method)) {
+            respond(out, 204, null);
+            return;
+        }
+        if (!"POST".equals(method) && !"PUT".equals(method)) {
+            respond(out, 405, "ERROR: POST only");
+            return;
+        }
+        Upload upload = path.startsWith("/upload/") ? take(path.substring(8)) : null;
+        if (upload == null) {
+            respond(out, 404, "ERROR: unknown or expired upload token");
+            return;
+        }
+
+        boolean chunked = "chunked".equalsIgnoreCase(headers.get("transfer-encoding"));
+        String lengthHeader = headers.get("content-length");
+        if (!chunked && lengthHeader == null) {
+            respond(out, 411, "ERROR: Content-Length required");
+            return;
+        }
+
+        DownloadsWriter.Pending pending = null;
+        try {
+            pending = upload.batch != null ? upload.batch.open(upload.index)
+                : DownloadsWriter.open(context, upload.filename, upload.mimeType, upload.subPath);
+            byte[] buf = new byte[BUFFER_SIZE];
+            if (chunked) {
+                long size;
+                while ((size = Long.parseLong(readLine(in).split(";")[0].trim(), 16)) > 0) {
+                    copy(in, pending, buf, size);
+                    readLine(in);   // CRLF after the chunk
+                }
+                while ((line = readLine(in)) != null && !line.isEmpty()) { /* trailers */ }
+            } else {
+                copy(in, pending, buf, Long.parseLong(lengthHeader));
+            }
+            String result;
+            if (upload.batch != null) {
+                pending.out.close();
+                upload.batch.markWritten(upload.index);
+                result = pending.path;
+            } else {
+                result = DownloadsWriter.commit(context, pending);
+            }
+            pending = null;
+            respond(out, 200, result);
+        } catch (Exception e) {
+            Log.e(TAG, "Upload of " + upload.filename + " failed", e);
+            if (upload.batch != null) {
+                // The item stays pending; the page may retry it or abort the batch
+                if (pending != null) try { pending.out.close(); } catch (IOException ignore) {}
+                upload.batch.markFailed(upload.index, e.getMessage());
+            } else if (pending != null) {
+                DownloadsWriter.abort(context, pending);
+            }
+            respond(out, 500, "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void copy(InputStream in, DownloadsWriter.Pending pending, byte[] buf, long length)
+            throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+            if (n < 0) throw new IOException("Connection closed after " + (length - remaining) + " bytes");
+            pending.out.write(buf, 0, n);
+            DownloadsWriter.addWritten(pending, n);
+            remaining -= n;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') break;
+            if (c != '\r') sb.append((char) c);
+            if (sb.length() > 8192) throw new IOException("Header line too long");
+        }
+        return c < 0 && sb.length() == 0 ? null : sb.toString();
+    }
+
+    private static void respond(OutputStream out, int code, String body) throws IOException {
+        byte[] bytes = body != null ? body.getBytes("UTF-8") : new byte[0];
+        String head = "HTTP/1.1 " + code + " " + reason(code) + "\r\n"
+            + "Access-Control-Allow-Origin: *\r\n"
+            + "Access-Control-Allow-Methods: POST, PUT, OPTIONS\r\n"
+            + "Access-Control-Allow-Headers: *\r\n"
+            + "Access-Control-Allow-Private-Network: true\r\n"
+            + "Content-Type: text/plain; charset=utf-8\r\n"
+            + "Content-Length: " + bytes.length + "\r\n"
+            + "Connection: close\r\n\r\n";
+        out.write(head.getBytes("US-ASCII"));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String reason(int code) {
+        switch (code) {
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 411: return "Length Required";
+            default: return "Error";
+        }
+    }
+
+    private class AcceptRunnable implements Runnable {
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread t = new Thread(new ConnectionRunnable(socket), "vp-upload-conn");
+                    t.setDaemon(true);
+                    t.start();
+                } catch (IOException e) {
+                    Log.w(TAG, "Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private class ConnectionRunnable implements Runnable {
+        private final Socket socket;
+        ConnectionRunnable(Socket socket) { this.socket = socket; }
+
+        @Override
+        public void run() {
+            try {
+                handle(socket);
+            } catch (Exception e) {
+                Log.w(TAG, "Connection failed: " + e.getMessage());
+            } finally {
+                try { socket.close(); } catch (IOException ignore) {}
+            }
+        }
+    }
+}
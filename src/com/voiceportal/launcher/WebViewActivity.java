@@ -23,8 +23,6 @@ import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.ParcelUuid;
 import android.webkit.ValueCallback;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.UUID;
@@ -68,6 +66,10 @@ public class WebViewActivity extends Activity {
 
     private ArrayList<TabInfo> tabs;
     private int activeTabIndex;
+    private int nextTabSeq = 0;
+    private final java.util.HashMap<String, ChipHolder> chipsById = new java.util.HashMap<>();
+    private TextView addTabButton;
+    private TextView modeButton;
     private PermissionRequest pendingPermissionRequest;
     private ValueCallback<Uri[]> fileUploadCallback;
     private boolean micPermissionGranted;
@@ -76,20 +78,65 @@ public class WebViewActivity extends Activity {
 
     private static final String UA_DESKTOP = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
 
+    /** Tab lifecycle: the visible tab is ACTIVE, hidden tabs are PAUSED (WebView.onPause),
+     *  tabs evicted by the memory budget are HIBERNATED (history in a Bundle, WebView destroyed). */
+    private static final int TAB_ACTIVE = 0;
+    private static final int TAB_PAUSED = 1;
+    private static final int TAB_HIBERNATED = 2;
+
+    /** Renderer-crash recovery: live tabs are snapshotted every SNAPSHOT_INTERVAL_MS; after a
+     *  crash they come back one per RESTORE_STAGGER_MS, apps crashing CRASH_LIMIT times within
+     *  CRASH_WINDOW_MS are left for a manual reload. */
+    private static final long SNAPSHOT_INTERVAL_MS = 15000;
+    private static final long RESTORE_STAGGER_MS = 1500;
+    private static final long CRASH_WINDOW_MS = 60000;
+    private static final long CRASH_BACKOFF_MS = 2000;
+    private static final long CRASH_BACKOFF_MAX_MS = 30000;
+    private static final int CRASH_LIMIT = 3;
+
+    /** Shared files wait in pendingShares until the active page calls VPNative.notifyReady();
+     *  pages without the handshake are probed for their handler every SHARE_PROBE_MS. */
+    private static final long SHARE_PROBE_MS = 500;
+    private static final int SHARE_PROBE_LIMIT = 40;
+    private final ArrayList<SharedContent.Entry> pendingShares = new ArrayList<>();
+    private final ShareProbeRunnable shareProbeRunnable = new ShareProbeRunnable();
+    private int shareProbes;
+
+    private final android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
+    private final java.util.HashMap<String, CrashRecord> crashes = new java.util.HashMap<>();
+    private final java.util.ArrayDeque<String> restoreQueue = new java.util.ArrayDeque<>();
+    private final SnapshotRunnable snapshotRunnable = new SnapshotRunnable();
+    private final RestoreNextRunnable restoreNextRunnable = new RestoreNextRunnable();
+
+    /** Renderer crashes of one app (or URL) within the current CRASH_WINDOW_MS */
+    private static class CrashRecord {
+        int count;
+        long windowStart;
+        long last;
+    }
+
     /** Tab data model */
     private static class TabInfo {
         final String id;
         final String name;
         final int port;
         final String url;
-        final WebView webView;
-
-        TabInfo(String id, String name, int port, String url, WebView webView) {
+        final AppConfig app;    // null for URLs not matching a configured app
+        WebView webView;        // null while hibernated
+        int state = TAB_ACTIVE;
+        Bundle savedState;      // latest saveState() snapshot, used to restore after hibernation or a crash
+        String lastUrl;         // page shown at that snapshot, fallback if restore fails
+        boolean pageReady;      // page called VPNative.notifyReady() since its last navigation
+        long lastUsed;
+
+        TabInfo(String id, String name, int port, String url, AppConfig app, WebView webView) {
             this.id = id;
             this.name = name;
             this.port = port;
             this.url = url;
+            this.app = app;
             this.webView = webView;
+            this.lastUsed = System.currentTimeMillis();
         }
     }
 
@@ -100,6 +147,8 @@ public class WebViewActivity extends Activity {
 
         WebView.setWebContentsDebuggingEnabled(true);
         initAudioManager();
+        // Keep probing the dev servers while we sit in the WebView
+        ServerMonitorService.start(this);
 
         webviewContainer = findViewById(R.id.webview_container);
         tabStrip = findViewById(R.id.tab_strip);
@@ -131,13 +180,11 @@ public class WebViewActivity extends Activity {
         // Initialize the Leica BLE bridge (doesn't connect yet, just sets up adapter handle)
         leicaBridge = new LeicaBleBridge();
 
-        // Cold-start with ACTION_SEND (DISTO Plan → share → VPL killed and relaunched)
-        // defer handling until after WebView is likely loaded
-        final Intent startIntent = getIntent();
+        // Cold-start with ACTION_SEND (DISTO Plan → share → VPL killed and relaunched):
+        // queued until the page says it's ready
+        Intent startIntent = getIntent();
         if (startIntent != null && Intent.ACTION_SEND.equals(startIntent.getAction())) {
-            new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(new Runnable() {
-                @Override public void run() { handleShareIntent(startIntent); }
-            }, 2500);
+            handleShareIntent(startIntent);
         }
     }
 
@@ -154,9 +201,11 @@ public class WebViewActivity extends Activity {
     }
 
     /**
-     * Reads a shared file from Intent.EXTRA_STREAM, base64-encodes it, and
-     * dispatches it to the active WebView via window.onDxfImported(base64, filename).
-     * Used for the DISTO Plan → DistoKML hybrid flow.
+     * Registers a shared file (Intent.EXTRA_STREAM) with SharedContent and queues it for
+     * the active page, which gets its https://vp.local/share/<token> URL via
+     * window.onSharedFile({url, name, mime, size}) once ready; the page fetch()es the bytes.
+     * Pages that only know window.onDxfImported(base64, filename) get the base64
+     * built on their side from the same URL. Used for the DISTO Plan → DistoKML flow.
      */
     private void handleShareIntent(Intent intent) {
         android.net.Uri uri = intent.getParcelableExtra(Intent.EXTRA_STREAM);
@@ -165,52 +214,10 @@ public class WebViewActivity extends Activity {
             return;
         }
         try {
-            // Read bytes from content URI
-            java.io.InputStream is = getContentResolver().openInputStream(uri);
-            if (is == null) throw new RuntimeException("openInputStream returned null");
-            java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = is.read(buf)) > 0) baos.write(buf, 0, n);
-            is.close();
-            byte[] bytes = baos.toByteArray();
-            String base64 = android.util.Base64.encodeToString(bytes, android.util.Base64.NO_WRAP);
-
-            // Resolve display name
-            String filename = "shared.dxf";
-            try {
-                android.database.Cursor cursor = getContentResolver().query(uri, null, null, null, null);
-                if (cursor != null) {
-                    int idx = cursor.getColumnIndex(android.provider.OpenableColumns.DISPLAY_NAME);
-                    if (idx >= 0 && cursor.moveToFirst()) {
-                        String name = cursor.getString(idx);
-                        if (name != null && !name.isEmpty()) filename = name;
-                    }
-                    cursor.close();
-                }
-            } catch (Exception e) { Log.w(TAG, "display name query failed: " + e.getMessage()); }
-
-            // Dispatch to the active tab's WebView (if any)
-            final WebView target;
-            if (activeTabIndex >= 0 && activeTabIndex < tabs.size()) {
-                target = tabs.get(activeTabIndex).webView;
-            } else {
-                target = null;
-            }
-            if (target == null) {
-                Log.w(TAG, "handleShareIntent: no active WebView to dispatch to");
-                return;
-            }
-            // Escape filename for JS string literal
-            final String safeName = filename.replace("\\", "\\\\").replace("'", "\\'");
-            final String jsCall = "(function(){ if (window.onDxfImported) window.onDxfImported('"
-                + base64 + "', '" + safeName + "'); else console.warn('window.onDxfImported not defined'); })();";
-            Log.d(TAG, "handleShareIntent: dispatching " + bytes.length + " bytes (" + filename + ")");
-            target.post(new Runnable() {
-                @Override public void run() {
-                    target.evaluateJavascript(jsCall, null);
-                }
-            });
+            SharedContent.Entry entry = SharedContent.register(this, uri, intent.getType());
+            Log.d(TAG, "handleShareIntent: " + entry.name + " (" + entry.size + " bytes) at " + entry.url);
+            pendingShares.add(entry);
+            deliverPendingShares();
         } catch (Exception e) {
             Log.e(TAG, "handleShareIntent failed", e);
             android.widget.Toast.makeText(this, "Błąd importu DXF: " + e.getMessage(),
@@ -218,6 +225,56 @@ public class WebViewActivity extends Activity {
         }
     }
 
+    /** Hand queued shares to the active page if it's ready, else keep probing for it. */
+    private void deliverPendingShares() {
+        if (pendingShares.isEmpty()) return;
+        TabInfo active = getActiveTab();
+        if (active == null || active.webView == null || !active.pageReady) {
+            shareProbes = 0;
+            handler.removeCallbacks(shareProbeRunnable);
+            handler.postDelayed(shareProbeRunnable, SHARE_PROBE_MS);
+            return;
+        }
+        handler.removeCallbacks(shareProbeRunnable);
+        for (int i = 0; i < pendingShares.size(); i++) {
+            try {
+                dispatchShare(active.webView, pendingShares.get(i));
+            } catch (Exception e) {
+                Log.e(TAG, "Share dispatch failed", e);
+            }
+        }
+        pendingShares.clear();
+    }
+
+    private void dispatchShare(WebView target, SharedContent.Entry entry) throws org.json.JSONException {
+        org.json.JSONObject file = new org.json.JSONObject();
+        file.put("url", entry.url);
+        file.put("name", entry.name);
+        file.put("mime", entry.mime);
+        file.put("size", entry.size);
+        String jsCall = "(function(f){"
+            + " if (window.onSharedFile) { window.onSharedFile(f); return; }"
+            + " if (!window.onDxfImported) { console.warn('window.onSharedFile not defined'); return; }"
+            + " fetch(f.url).then(function(r){ return r.blob(); }).then(function(b){"
+            + "  var rd = new FileReader();"
+            + "  rd.onload = function(){ var s = rd.result; window.onDxfImported(s.substring(s.indexOf(',') + 1), f.name); };"
+            + "  rd.readAsDataURL(b);"
+            + " });"
+            + "})(" + file + ");";
+        target.evaluateJavascript(jsCall, null);
+    }
+
+    /** A page announced (or was found) ready: deliver if it's the visible one. */
+    private void onPageReady(WebView view) {
+        for (int i = 0; i < tabs.size(); i++) {
+            if (tabs.get(i).webView == view) {
+                tabs.get(i).pageReady = true;
+                if (i == activeTabIndex) deliverPendingShares();
+                return;
+            }
+        }
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -346,16 +403,13 @@ public class WebViewActivity extends Activity {
             }
         }
 
-        WebView webView = new WebView(this);
-        FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT,
-                ViewGroup.LayoutParams.MATCH_PARENT);
-        webView.setLayoutParams(lp);
-        setupWebView(webView);
-        webviewContainer.addView(webView);
+        String siteId = StaticSite.appIdFromUrl(url);
+        AppConfig app = siteId != null ? AppConfig.findById(this, siteId)
+            : (port > 0 ? AppConfig.findByPort(this, port) : null);
+        WebView webView = createTabWebView(true, app);
 
-        String id = "tab_" + System.currentTimeMillis();
-        TabInfo tab = new TabInfo(id, name, port, url, webView);
+        String id = "tab_" + System.currentTimeMillis() + "_" + (nextTabSeq++);
+        TabInfo tab = new TabInfo(id, name, port, url, app, webView);
         tabs.add(tab);
 
         int newIndex = tabs.size() - 1;
@@ -363,21 +417,237 @@ public class WebViewActivity extends Activity {
 
         Log.d(TAG, "Loading URL in tab '" + name + "': " + url);
         webView.loadUrl(url);
+    }
 
-        updateTabStrip();
+    /**
+     * Take the pre-warmed WebView when allowed and available; the pool refills once
+     * we're idle. Restored tabs need a fresh one, restoreState() wants no prior history.
+     */
+    private WebView createTabWebView(boolean pooled, AppConfig app) {
+        WebView webView = pooled ? WebViewPool.acquire(this) : null;
+        if (webView != null) {
+            Log.d(TAG, "Using pre-warmed WebView");
+        } else {
+            webView = new WebView(this);
+        }
+        WebViewPool.prewarmWhenIdle(this);
+        FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        webView.setLayoutParams(lp);
+        setupWebView(webView, app);
+        webviewContainer.addView(webView);
+        return webView;
     }
 
     private void switchToTab(int index) {
         if (index < 0 || index >= tabs.size()) return;
 
-        if (activeTabIndex >= 0 && activeTabIndex < tabs.size()) {
-            tabs.get(activeTabIndex).webView.setVisibility(View.GONE);
+        if (activeTabIndex >= 0 && activeTabIndex < tabs.size() && activeTabIndex != index) {
+            pauseTab(tabs.get(activeTabIndex));
         }
 
         activeTabIndex = index;
-        tabs.get(activeTabIndex).webView.setVisibility(View.VISIBLE);
+        TabInfo tab = tabs.get(activeTabIndex);
+        if (tab.state == TAB_HIBERNATED) {
+            wakeTab(tab);
+        }
+        tab.webView.setVisibility(View.VISIBLE);
+        tab.webView.onResume();
+        tab.state = TAB_ACTIVE;
+        tab.lastUsed = System.currentTimeMillis();
 
+        enforceTabBudget();
         updateTabStrip();
+        deliverPendingShares();
+    }
+
+    /** Hidden tab: stop rendering, animations and media, keep the page alive. */
+    private void pauseTab(TabInfo tab) {
+        if (tab.webView == null) return;
+        snapshotTab(tab);
+        tab.webView.setVisibility(View.GONE);
+        tab.webView.onPause();
+        tab.state = TAB_PAUSED;
+        tab.lastUsed = System.currentTimeMillis();
+    }
+
+    /** Save back/forward history and free the WebView (and its renderer memory). */
+    private void hibernateTab(TabInfo tab) {
+        if (tab.webView == null) return;
+        snapshotTab(tab);
+        webviewContainer.removeView(tab.webView);
+        tab.webView.destroy();
+        tab.webView = null;
+        tab.state = TAB_HIBERNATED;
+        Log.d(TAG, "Hibernated tab '" + tab.name + "'");
+    }
+
+    /** Keep the tab's latest history snapshot; a crashed renderer can't be asked any more. */
+    private void snapshotTab(TabInfo tab) {
+        Bundle state = new Bundle();
+        if (tab.webView.saveState(state) != null) tab.savedState = state;
+        String url = tab.webView.getUrl();
+        if (url != null && !url.equals("about:blank")) tab.lastUrl = url;
+    }
+
+    /** Recreate a hibernated tab's WebView; restoreState reloads the current history entry. */
+    private void wakeTab(TabInfo tab) {
+        tab.webView = createTabWebView(false, tab.app);
+        if (tab.savedState == null || tab.webView.restoreState(tab.savedState) == null) {
+            tab.webView.loadUrl(tab.lastUrl != null ? tab.lastUrl : tab.url);
+        }
+        tab.state = TAB_PAUSED;
+        Log.d(TAG, "Restored tab '" + tab.name + "'");
+    }
+
+    /**
+     * The tab's renderer is gone: drop the dead WebView and keep the tab as hibernated,
+     * so it comes back from its last snapshot. Background tabs are queued and restored one
+     * at a time; the visible one after a backoff that grows with the app's recent crashes.
+     * An app over CRASH_LIMIT stays down until the user taps its tab.
+     */
+    private void recoverTab(TabInfo tab, boolean didCrash) {
+        webviewContainer.removeView(tab.webView);
+        tab.webView.destroy();
+        tab.webView = null;
+        tab.state = TAB_HIBERNATED;
+
+        // Killed for memory isn't the app's fault: no backoff, restore on demand
+        if (!didCrash) {
+            if (tab == getActiveTab()) handler.post(new RestoreTabRunnable(tab.id));
+            return;
+        }
+
+        int count = recordCrash(tab);
+        if (count >= CRASH_LIMIT) {
+            Log.w(TAG, "Tab '" + tab.name + "' crashed " + count + "x, not reloading");
+            android.widget.Toast.makeText(this, tab.name + ": strona ciągle się wysypuje, dotknij kartę by przeładować",
+                android.widget.Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (tab == getActiveTab()) {
+            long delay = count <= 1 ? 0
+                : Math.min(CRASH_BACKOFF_MS << (count - 2), CRASH_BACKOFF_MAX_MS);
+            Log.w(TAG, "Reloading crashed tab '" + tab.name + "' in " + delay + "ms");
+            handler.postDelayed(new RestoreTabRunnable(tab.id), delay);
+        } else if (!restoreQueue.contains(tab.id)) {
+            restoreQueue.add(tab.id);
+            handler.removeCallbacks(restoreNextRunnable);
+            handler.postDelayed(restoreNextRunnable, RESTORE_STAGGER_MS);
+        }
+    }
+
+    /** Count a crash against the tab's app; one renderer crash hits every tab, so a crash
+     *  of the same app within a second counts once. Returns crashes in the current window. */
+    private int recordCrash(TabInfo tab) {
+        String key = tab.app != null ? tab.app.id : tab.url;
+        long now = System.currentTimeMillis();
+        CrashRecord rec = crashes.get(key);
+        if (rec == null || now - rec.windowStart > CRASH_WINDOW_MS) {
+            rec = new CrashRecord();
+            rec.windowStart = now;
+            crashes.put(key, rec);
+        }
+        if (now - rec.last > 1000) rec.count++;
+        rec.last = now;
+        return rec.count;
+    }
+
+    /** Crash recovery of a background tab, within the live-tab budget. */
+    private void restoreNextQueued() {
+        int maxLive = Math.max(1,
+            SettingsActivity.getTabMemoryBudgetMb(this) / SettingsActivity.TAB_COST_MB);
+        while (!restoreQueue.isEmpty()) {
+            int index = indexOfTab(restoreQueue.poll());
+            if (index < 0 || index == activeTabIndex) continue;
+            TabInfo tab = tabs.get(index);
+            if (tab.state != TAB_HIBERNATED) continue;
+            int live = 0;
+            for (int i = 0; i < tabs.size(); i++) {
+                if (tabs.get(i).webView != null) live++;
+            }
+            if (live >= maxLive) {
+                restoreQueue.clear();   // the rest wake when switched to
+                return;
+            }
+            wakeTab(tab);
+            pauseTab(tab);
+            updateTabStrip();
+            break;
+        }
+        if (!restoreQueue.isEmpty()) handler.postDelayed(restoreNextRunnable, RESTORE_STAGGER_MS);
+    }
+
+    /** Keep at most budget / TAB_COST_MB live WebViews, hibernating least recently used first. */
+    private void enforceTabBudget() {
+        int maxLive = Math.max(1,
+            SettingsActivity.getTabMemoryBudgetMb(this) / SettingsActivity.TAB_COST_MB);
+        hibernateLeastRecent(maxLive);
+    }
+
+    private void hibernateLeastRecent(int maxLive) {
+        int live = 0;
+        for (int i = 0; i < tabs.size(); i++) {
+            if (tabs.get(i).webView != null) live++;
+        }
+        while (live > maxLive) {
+            TabInfo lru = null;
+            for (int i = 0; i < tabs.size(); i++) {
+                TabInfo t = tabs.get(i);
+                if (i == activeTabIndex || t.webView == null) continue;
+                if (lru == null || t.lastUsed < lru.lastUsed) lru = t;
+            }
+            if (lru == null) break;
+            hibernateTab(lru);
+            live--;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Memory is tight (foreground) or we're on the LRU list (background): keep only the visible tab
+        if (level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= TRIM_MEMORY_BACKGROUND) {
+            Log.w(TAG, "onTrimMemory(" + level + "), hibernating background tabs");
+            WebViewPool.clear();
+            hibernateLeastRecent(1);
+            updateTabStrip();
+        }
+    }
+
+    // pauseTimers() is process-wide (all WebViews), so it follows the activity,
+    // not individual tabs; hidden tabs only get WebView.onPause().
+    @Override
+    protected void onStart() {
+        super.onStart();
+        TabInfo active = getActiveTab();
+        if (active != null && active.webView != null) {
+            active.webView.resumeTimers();
+            active.webView.onResume();
+        }
+        handler.removeCallbacks(snapshotRunnable);
+        handler.postDelayed(snapshotRunnable, SNAPSHOT_INTERVAL_MS);
+    }
+
+    @Override
+    protected void onStop() {
+        TabInfo active = getActiveTab();
+        if (active != null && active.webView != null) {
+            snapshotTab(active);
+            active.webView.onPause();
+            active.webView.pauseTimers();
+        }
+        handler.removeCallbacks(snapshotRunnable);
+        // We may be killed any time from here on
+        Journal.flushNow();
+        super.onStop();
+    }
+
+    private TabInfo getActiveTab() {
+        if (tabs == null || activeTabIndex < 0 || activeTabIndex >= tabs.size()) return null;
+        return tabs.get(activeTabIndex);
     }
 
     private void closeTab(int index) {
@@ -386,8 +656,10 @@ public class WebViewActivity extends Activity {
         TabInfo tab = tabs.get(index);
         Log.d(TAG, "Closing tab: " + tab.name);
 
-        webviewContainer.removeView(tab.webView);
-        tab.webView.destroy();
+        if (tab.webView != null) {
+            webviewContainer.removeView(tab.webView);
+            tab.webView.destroy();
+        }
         tabs.remove(index);
 
         if (tabs.isEmpty()) {
@@ -406,75 +678,131 @@ public class WebViewActivity extends Activity {
         updateTabStrip();
     }
 
+    /** Close every tab but the active one (IsolatedWebViewActivity handing its slot over). */
+    protected void closeOtherTabs() {
+        for (int i = tabs.size() - 1; i >= 0; i--) {
+            if (i != activeTabIndex) closeTab(i);
+        }
+    }
+
+    /** Chip views of one tab plus what they currently show, so binding can skip no-op updates. */
+    private static class ChipHolder {
+        final View chip;
+        final TextView nameView;
+        final TextView portBadge;
+        final View indicator;
+        final TextView closeBtn;
+        Boolean active;     // null until first bind
+        int state = -1;
+
+        ChipHolder(View chip) {
+            this.chip = chip;
+            this.nameView = chip.findViewById(R.id.tab_name);
+            this.portBadge = chip.findViewById(R.id.tab_port_badge);
+            this.indicator = chip.findViewById(R.id.tab_active_indicator);
+            this.closeBtn = chip.findViewById(R.id.tab_close_btn);
+        }
+    }
+
+    /**
+     * Keyed tab strip: chips are created once per TabInfo.id and reused, listeners
+     * look tabs up by id, and only chips whose active/hibernated state changed are
+     * touched. A tab switch rebinds two chips instead of re-inflating the strip.
+     */
     private void updateTabStrip() {
-        tabStripContent.removeAllViews();
-        LayoutInflater inflater = LayoutInflater.from(this);
+        if (addTabButton == null) createStripButtons();
+
+        // Drop chips of closed tabs
+        java.util.Iterator<java.util.Map.Entry<String, ChipHolder>> it = chipsById.entrySet().iterator();
+        while (it.hasNext()) {
+            java.util.Map.Entry<String, ChipHolder> e = it.next();
+            if (indexOfTab(e.getKey()) < 0) {
+                tabStripContent.removeView(e.getValue().chip);
+                it.remove();
+            }
+        }
 
+        LayoutInflater inflater = null;
         for (int i = 0; i < tabs.size(); i++) {
             TabInfo tab = tabs.get(i);
-            View chipView = inflater.inflate(R.layout.item_tab_chip, tabStripContent, false);
-
-            TextView nameView = chipView.findViewById(R.id.tab_name);
-            TextView portBadge = chipView.findViewById(R.id.tab_port_badge);
-            View indicator = chipView.findViewById(R.id.tab_active_indicator);
-            TextView closeBtn = chipView.findViewById(R.id.tab_close_btn);
-
-            nameView.setText(tab.name);
-            if (tab.port > 0) {
-                portBadge.setText(String.valueOf(tab.port));
-                portBadge.setVisibility(View.VISIBLE);
-            } else {
-                portBadge.setVisibility(View.GONE);
+            ChipHolder holder = chipsById.get(tab.id);
+            if (holder == null) {
+                if (inflater == null) inflater = LayoutInflater.from(this);
+                holder = new ChipHolder(
+                    inflater.inflate(R.layout.item_tab_chip, tabStripContent, false));
+                holder.nameView.setText(tab.name);
+                if (tab.port > 0) {
+                    holder.portBadge.setText(String.valueOf(tab.port));
+                    holder.portBadge.setVisibility(View.VISIBLE);
+                } else {
+                    holder.portBadge.setVisibility(View.GONE);
+                }
+                holder.chip.setOnClickListener(new TabClickListener(tab.id));
+                holder.chip.setOnLongClickListener(new TabLongClickListener(tab.id));
+                holder.closeBtn.setOnClickListener(new TabCloseClickListener(tab.id));
+                chipsById.put(tab.id, holder);
             }
-
-            boolean isActive = (i == activeTabIndex);
-            if (isActive) {
-                chipView.setBackgroundResource(R.drawable.tab_chip_active_bg);
-                indicator.setVisibility(View.VISIBLE);
-                closeBtn.setVisibility(View.VISIBLE);
-                closeBtn.setOnClickListener(new TabCloseClickListener(i));
-            } else {
-                chipView.setBackgroundResource(R.drawable.tab_chip_bg);
-                indicator.setVisibility(View.GONE);
-                closeBtn.setVisibility(View.GONE);
+            // Keep chip order in sync with tabs; the +/mode buttons stay after the chips
+            if (tabStripContent.getChildAt(i) != holder.chip) {
+                if (holder.chip.getParent() != null) tabStripContent.removeView(holder.chip);
+                tabStripContent.addView(holder.chip, i);
             }
+            bindChip(holder, tab, i == activeTabIndex);
+        }
 
-            chipView.setOnClickListener(new TabClickListener(i));
-            chipView.setOnLongClickListener(new TabLongClickListener(i));
+        modeButton.setText(desktopMode ? "\uD83D\uDDA5" : "\uD83D\uDCF1");
+        modeButton.setBackgroundResource(desktopMode
+                ? R.drawable.tab_chip_active_bg : R.drawable.tab_chip_bg);
+    }
 
-            tabStripContent.addView(chipView);
+    private void bindChip(ChipHolder holder, TabInfo tab, boolean isActive) {
+        if (holder.active == null || holder.active != isActive) {
+            holder.active = isActive;
+            holder.chip.setBackgroundResource(isActive
+                    ? R.drawable.tab_chip_active_bg : R.drawable.tab_chip_bg);
+            holder.indicator.setVisibility(isActive ? View.VISIBLE : View.GONE);
+            holder.closeBtn.setVisibility(isActive ? View.VISIBLE : View.GONE);
+        }
+        if (holder.state != tab.state) {
+            holder.state = tab.state;
+            holder.nameView.setAlpha(tab.state == TAB_HIBERNATED ? 0.5f : 1f);
         }
+    }
 
-        // Add "+" button at the end
-        TextView addBtn = new TextView(this);
-        addBtn.setText("+");
-        addBtn.setTextColor(getColor(R.color.accent_light));
-        addBtn.setTextSize(20);
-        addBtn.setGravity(Gravity.CENTER);
-        addBtn.setTypeface(null, Typeface.BOLD);
+    /** "+" and desktop/mobile toggle, created once and kept after the chips. */
+    private void createStripButtons() {
+        addTabButton = new TextView(this);
+        addTabButton.setText("+");
+        addTabButton.setTextColor(getColor(R.color.accent_light));
+        addTabButton.setTextSize(20);
+        addTabButton.setGravity(Gravity.CENTER);
+        addTabButton.setTypeface(null, Typeface.BOLD);
 
         LinearLayout.LayoutParams addLp = new LinearLayout.LayoutParams(dp(36), dp(34));
         addLp.setMargins(dp(4), dp(4), dp(4), dp(4));
-        addBtn.setLayoutParams(addLp);
-        addBtn.setBackgroundResource(R.drawable.tab_chip_bg);
-        addBtn.setOnClickListener(new AddTabClickListener());
+        addTabButton.setLayoutParams(addLp);
+        addTabButton.setBackgroundResource(R.drawable.tab_chip_bg);
+        addTabButton.setOnClickListener(new AddTabClickListener());
 
-        tabStripContent.addView(addBtn);
+        tabStripContent.addView(addTabButton);
 
-        // Desktop/mobile toggle button
-        TextView modeBtn = new TextView(this);
-        modeBtn.setText(desktopMode ? "\uD83D\uDDA5" : "\uD83D\uDCF1");
-        modeBtn.setTextSize(16);
-        modeBtn.setGravity(Gravity.CENTER);
+        modeButton = new TextView(this);
+        modeButton.setTextSize(16);
+        modeButton.setGravity(Gravity.CENTER);
 
         LinearLayout.LayoutParams modeLp = new LinearLayout.LayoutParams(dp(36), dp(34));
         modeLp.setMargins(dp(2), dp(4), dp(4), dp(4));
-        modeBtn.setLayoutParams(modeLp);
-        modeBtn.setBackgroundResource(desktopMode
-                ? R.drawable.tab_chip_active_bg : R.drawable.tab_chip_bg);
-        modeBtn.setOnClickListener(new ToggleDesktopClickListener());
+        modeButton.setLayoutParams(modeLp);
+        modeButton.setOnClickListener(new ToggleDesktopClickListener());
+
+        tabStripContent.addView(modeButton);
+    }
 
-        tabStripContent.addView(modeBtn);
+    private int indexOfTab(String id) {
+        for (int i = 0; i < tabs.size(); i++) {
+            if (tabs.get(i).id.equals(id)) return i;
+        }
+        return -1;
     }
 
     private void enterImmersiveMode() {
@@ -521,33 +849,31 @@ public class WebViewActivity extends Activity {
         return (int) (value * density + 0.5f);
     }
 
-    private void setupWebView(WebView webView) {
-        WebSettings settings = webView.getSettings();
-        settings.setJavaScriptEnabled(true);
-        settings.setDomStorageEnabled(true);
-        settings.setMediaPlaybackRequiresUserGesture(false);
-        settings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
-        settings.setAllowFileAccess(true);
-        settings.setDatabaseEnabled(true);
-        settings.setCacheMode(WebSettings.LOAD_NO_CACHE);
-
-        android.webkit.CookieManager.getInstance().setAcceptThirdPartyCookies(webView, true);
+    private void setupWebView(WebView webView, AppConfig app) {
+        // Pooled WebViews already have these; re-applying is cheap
+        WebViewPool.applyBaseSettings(webView);
+        if (app != null) {
+            webView.getSettings().setCacheMode(app.webCacheMode());
+        }
 
         // Apply current desktop/mobile mode
         applyViewportMode(webView);
 
-        webView.setWebViewClient(new VPWebViewClient());
+        webView.setWebViewClient(new VPWebViewClient(
+            app != null && app.assetCache ? AssetCache.get(this) : null,
+            app != null && app.isStatic() ? new StaticSite(app.id) : null));
         webView.setWebChromeClient(new VPWebChromeClient());
         webView.setDownloadListener(new VPDownloadListener());
-        webView.addJavascriptInterface(new VPNativeBridge(this), "VPNative");
+        webView.addJavascriptInterface(new VPNativeBridge(this, webView), "VPNative");
     }
 
     @Override
     public void onBackPressed() {
+        // A crashed tab waiting for its restore has no WebView: nothing to go back in
         if (kioskMode) {
             if (activeTabIndex >= 0 && activeTabIndex < tabs.size()) {
                 WebView active = tabs.get(activeTabIndex).webView;
-                if (active.canGoBack()) {
+                if (active != null && active.canGoBack()) {
                     active.goBack();
                     return;
                 }
@@ -558,7 +884,7 @@ public class WebViewActivity extends Activity {
         }
         if (activeTabIndex >= 0 && activeTabIndex < tabs.size()) {
             WebView active = tabs.get(activeTabIndex).webView;
-            if (active.canGoBack()) {
+            if (active != null && active.canGoBack()) {
                 active.goBack();
                 return;
             }
@@ -573,8 +899,9 @@ public class WebViewActivity extends Activity {
 
     @Override
     protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
         for (TabInfo tab : tabs) {
-            tab.webView.destroy();
+            if (tab.webView != null) tab.webView.destroy();
         }
         tabs.clear();
         super.onDestroy();
@@ -582,31 +909,33 @@ public class WebViewActivity extends Activity {
 
     // --- Named inner classes for d8 compatibility ---
 
+    // Tab listeners hold the tab id, not its position, so they survive closes and reorders
+
     private class TabClickListener implements View.OnClickListener {
-        private final int index;
-        TabClickListener(int index) { this.index = index; }
+        private final String tabId;
+        TabClickListener(String tabId) { this.tabId = tabId; }
         @Override
         public void onClick(View v) {
-            switchToTab(index);
+            switchToTab(indexOfTab(tabId));
         }
     }
 
     private class TabLongClickListener implements View.OnLongClickListener {
-        private final int index;
-        TabLongClickListener(int index) { this.index = index; }
+        private final String tabId;
+        TabLongClickListener(String tabId) { this.tabId = tabId; }
         @Override
         public boolean onLongClick(View v) {
-            closeTab(index);
+            closeTab(indexOfTab(tabId));
             return true;
         }
     }
 
     private class TabCloseClickListener implements View.OnClickListener {
-        private final int index;
-        TabCloseClickListener(int index) { this.index = index; }
+        private final String tabId;
+        TabCloseClickListener(String tabId) { this.tabId = tabId; }
         @Override
         public void onClick(View v) {
-            closeTab(index);
+            closeTab(indexOfTab(tabId));
         }
     }
 
@@ -629,13 +958,16 @@ public class WebViewActivity extends Activity {
         Log.d(TAG, "Desktop mode: " + desktopMode);
 
         // Apply WebView settings to all tabs
+        // Hibernated tabs pick the mode up in setupWebView when restored
         for (TabInfo tab : tabs) {
-            applyViewportMode(tab.webView);
+            if (tab.webView != null) applyViewportMode(tab.webView);
         }
 
         // Inject viewport override on active tab immediately, then reload
-        if (activeTabIndex >= 0 && activeTabIndex < tabs.size()) {
-            WebView active = tabs.get(activeTabIndex).webView;
+        // (a crashed active tab has no WebView yet; it gets the mode when restored)
+        WebView active = activeTabIndex >= 0 && activeTabIndex < tabs.size()
+            ? tabs.get(activeTabIndex).webView : null;
+        if (active != null) {
             if (desktopMode) {
                 active.evaluateJavascript(
                     "(function(){var m=document.querySelector('meta[name=viewport]');" +
@@ -667,12 +999,50 @@ public class WebViewActivity extends Activity {
         }
     }
 
-    /** WebViewClient that pre-warms audio after page loads and handles renderer crashes */
+    /** WebViewClient that pre-warms audio after page loads, serves static builds and
+     *  cached hashed assets, and handles renderer crashes */
     private class VPWebViewClient extends WebViewClient {
+        private final AssetCache assetCache;   // null when the app has it off
+        private final StaticSite site;         // null unless serveMode is "static"
+
+        VPWebViewClient(AssetCache assetCache, StaticSite site) {
+            this.assetCache = assetCache;
+            this.site = site;
+        }
+
+        @Override
+        public android.webkit.WebResourceResponse shouldInterceptRequest(WebView view,
+                android.webkit.WebResourceRequest request) {
+            if (SharedContent.handles(request)) {
+                return SharedContent.serve(request);
+            }
+            if (site != null && site.handles(request)) {
+                return site.serve(request);
+            }
+            if (assetCache != null && AssetCache.isCacheable(request)) {
+                return assetCache.intercept(request);
+            }
+            return null;
+        }
+
+        @Override
+        public void onPageStarted(WebView view, String url, android.graphics.Bitmap favicon) {
+            super.onPageStarted(view, url, favicon);
+            for (int i = 0; i < tabs.size(); i++) {
+                if (tabs.get(i).webView == view) tabs.get(i).pageReady = false;
+            }
+        }
+
         @Override
         public void onPageFinished(WebView view, String url) {
             super.onPageFinished(view, url);
             Log.d(TAG, "Page loaded: " + url);
+            TabInfo active = getActiveTab();
+            if (active != null && active.webView == view) deliverPendingShares();
+
+            if (!"about:blank".equals(url) && WebViewPool.consumeWarmupHistory(view)) {
+                view.clearHistory();
+            }
 
             // Override viewport meta tag for desktop mode
             if (desktopMode) {
@@ -708,29 +1078,14 @@ public class WebViewActivity extends Activity {
 
             for (int i = 0; i < tabs.size(); i++) {
                 if (tabs.get(i).webView == view) {
-                    webviewContainer.removeView(view);
-                    view.destroy();
-                    String crashedUrl = tabs.get(i).url;
-                    String crashedName = tabs.get(i).name;
-                    int crashedPort = tabs.get(i).port;
-                    tabs.remove(i);
-
-                    if (tabs.isEmpty()) {
-                        activeTabIndex = -1;
-                        addTab(crashedName, crashedUrl, crashedPort);
-                    } else {
-                        if (i == activeTabIndex) {
-                            int newIndex = i >= tabs.size() ? tabs.size() - 1 : i;
-                            activeTabIndex = -1;
-                            switchToTab(newIndex);
-                        } else if (i < activeTabIndex) {
-                            activeTabIndex--;
-                        }
-                        updateTabStrip();
-                    }
-                    break;
+                    recoverTab(tabs.get(i), detail.didCrash());
+                    updateTabStrip();
+                    return true;
                 }
             }
+            // Not a tab (e.g. the pooled spare): just get rid of it
+            if (view.getParent() != null) ((ViewGroup) view.getParent()).removeView(view);
+            view.destroy();
             return true;
         }
     }
@@ -833,48 +1188,347 @@ public class WebViewActivity extends Activity {
      *  Returns "Downloads/<filename>" on success or "ERROR: <reason>" on failure. */
     public class VPNativeBridge {
         private final android.content.Context ctx;
+        private final WebView owner;
+        private final java.util.HashMap<String, TextFileReader.Stream> reads = new java.util.HashMap<>();
+        private int nextReadId = 1;
+        private int nextCallId = 1;
 
-        public VPNativeBridge(android.content.Context ctx) {
+        public VPNativeBridge(android.content.Context ctx, WebView owner) {
             this.ctx = ctx;
+            this.owner = owner;
+        }
+
+        /** Page handlers (onSharedFile etc.) are set up; queued shares are delivered now. */
+        @android.webkit.JavascriptInterface
+        public void notifyReady() {
+            runOnUiThread(new PageReadyRunnable(owner));
+        }
+
+        // 3-arg version kept for backward compatibility (delegates with null subPath)
+        @android.webkit.JavascriptInterface
+        public String saveFile(String base64Content, String filename, String mimeType) {
+            return saveFile(base64Content, filename, mimeType, null);
+        }
+
+        @android.webkit.JavascriptInterface
+        public String saveFile(String base64Content, String filename, String mimeType, String subPath) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                if (base64Content == null) return "ERROR: content null";
+                if (mimeType == null || mimeType.isEmpty()) mimeType = "application/octet-stream";
+                byte[] data = android.util.Base64.decode(base64Content, android.util.Base64.DEFAULT);
+                return DownloadsWriter.write(ctx, filename, mimeType, subPath, data);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.saveFile failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        // 3-arg version kept for backward compatibility
+        @android.webkit.JavascriptInterface
+        public String saveTextFile(String text, String filename, String mimeType) {
+            return saveTextFile(text, filename, mimeType, null);
+        }
+
+        @android.webkit.JavascriptInterface
+        public String saveTextFile(String text, String filename, String mimeType, String subPath) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                if (text == null) return "ERROR: text null";
+                if (mimeType == null || mimeType.isEmpty()) mimeType = "text/plain";
+                byte[] data = text.getBytes("UTF-8");
+                return DownloadsWriter.write(ctx, filename, mimeType, subPath, data);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.saveTextFile failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** saveFile that overwrites Download/<subPath>/<filename> in place instead of adding
+         *  "name (1).ext"; with skipUnchanged, identical content isn't rewritten at all.
+         *  Returns the same "Download/..." path or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String saveFileInPlace(String base64Content, String filename, String mimeType,
+                                      String subPath, boolean skipUnchanged) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                if (base64Content == null) return "ERROR: content null";
+                if (mimeType == null || mimeType.isEmpty()) mimeType = "application/octet-stream";
+                byte[] data = android.util.Base64.decode(base64Content, android.util.Base64.DEFAULT);
+                return DownloadsWriter.writeInPlace(ctx, filename, mimeType, subPath, data, skipUnchanged);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.saveFileInPlace failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        @android.webkit.JavascriptInterface
+        public String saveTextFileInPlace(String text, String filename, String mimeType,
+                                          String subPath, boolean skipUnchanged) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                if (text == null) return "ERROR: text null";
+                if (mimeType == null || mimeType.isEmpty()) mimeType = "text/plain";
+                byte[] data = text.getBytes("UTF-8");
+                return DownloadsWriter.writeInPlace(ctx, filename, mimeType, subPath, data, skipUnchanged);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.saveTextFileInPlace failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Streaming alternative to saveFile for big files: returns a one-shot URL to POST
+         *  the Blob to (fetch(url, {method: 'POST', body: blob})); the response text is the
+         *  saved "Download/..." path or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String beginUpload(String filename, String mimeType, String subPath) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                if (mimeType == null || mimeType.isEmpty()) mimeType = "application/octet-stream";
+                return UploadServer.get(ctx).register(filename, mimeType, subPath);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.beginUpload failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        // ---- Batch save ----
+        // beginBatch inserts every file of the manifest as pending in one MediaStore batch.
+        // Entries with "text" are written right away on the I/O pool; the others get a
+        // one-shot upload URL to POST their Blob to (in parallel). commitBatch publishes
+        // all files at once, or reports which are missing and publishes none.
+
+        /** manifestJson: [{"name": "a.kml", "mime": "...", "text": "optional inline content"}, ...].
+         *  Returns {"batch": id, "files": [{"name", "url"}]} (url null for inline entries)
+         *  or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String beginBatch(String subPath, String manifestJson) {
+            try {
+                org.json.JSONArray manifest = new org.json.JSONArray(manifestJson);
+                int n = manifest.length();
+                if (n == 0) return "ERROR: empty manifest";
+                String[] names = new String[n];
+                String[] mimes = new String[n];
+                int inlineCount = 0;
+                for (int i = 0; i < n; i++) {
+                    org.json.JSONObject f = manifest.getJSONObject(i);
+                    names[i] = f.optString("name", "");
+                    if (names[i].isEmpty()) return "ERROR: filename required (entry " + i + ")";
+                    mimes[i] = f.optString("mime", "");
+                    if (mimes[i].isEmpty()) mimes[i] = f.has("text") ? "text/plain" : "application/octet-stream";
+                    if (f.has("text")) inlineCount++;
+                }
+
+                DownloadBatch batch = DownloadBatch.create(ctx, subPath, names, mimes);
+                UploadServer server = inlineCount < n ? UploadServer.get(ctx) : null;
+                int[] inlineIdx = new int[inlineCount];
+                byte[][] inlineData = new byte[inlineCount][];
+                org.json.JSONArray files = new org.json.JSONArray();
+                for (int i = 0, k = 0; i < n; i++) {
+                    org.json.JSONObject f = manifest.getJSONObject(i);
+                    org.json.JSONObject out = new org.json.JSONObject();
+                    out.put("name", names[i]);
+                    if (f.has("text")) {
+                        inlineIdx[k] = i;
+                        inlineData[k++] = f.getString("text").getBytes("UTF-8");
+                        out.put("url", org.json.JSONObject.NULL);
+                    } else {
+                        out.put("url", server.registerBatchItem(batch, i, names[i]));
+                    }
+                    files.put(out);
+                }
+                batch.writeInline(inlineIdx, inlineData);
+
+                org.json.JSONObject result = new org.json.JSONObject();
+                result.put("batch", batch.id);
+                result.put("files", files);
+                return result.toString();
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.beginBatch failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Fresh upload URL for a batch entry, e.g. to retry a failed POST. */
+        @android.webkit.JavascriptInterface
+        public String batchUploadUrl(String batchId, int index) {
+            try {
+                DownloadBatch batch = DownloadBatch.find(batchId);
+                if (batch == null) return "ERROR: unknown batch";
+                if (index < 0 || index >= batch.size()) return "ERROR: bad index";
+                return UploadServer.get(ctx).registerBatchItem(batch, index, "batch item " + index);
+            } catch (Exception e) {
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Publish every file of the batch: "Download/... (n files)" or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String commitBatch(String batchId) {
+            DownloadBatch batch = DownloadBatch.find(batchId);
+            return batch != null ? batch.commit() : "ERROR: unknown batch";
+        }
+
+        @android.webkit.JavascriptInterface
+        public String abortBatch(String batchId) {
+            DownloadBatch batch = DownloadBatch.find(batchId);
+            if (batch == null) return "ERROR: unknown batch";
+            batch.abort();
+            return "OK";
+        }
+
+        // ---- Autosave journal ----
+        // Cheap enough to call on every edit: records are coalesced and fsynced about once
+        // a second into an app-private log. On the next start the page asks journalList /
+        // journalReplay whether there is unsaved work, and journalCompact exports it.
+
+        /** Record the full current state; supersedes earlier records. "OK" or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String journalWrite(String name, String state) {
+            try {
+                Journal.get(ctx).write(name, state != null ? state : "");
+                return "OK";
+            } catch (Exception e) {
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Record a delta op, replayed in order after the last full state. */
+        @android.webkit.JavascriptInterface
+        public String journalAppend(String name, String op) {
+            try {
+                Journal.get(ctx).append(name, op != null ? op : "");
+                return "OK";
+            } catch (Exception e) {
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** {"state": "..."|null, "ops": [...], "updated": millis}, "null" if empty, or "ERROR: ...". */
+        @android.webkit.JavascriptInterface
+        public String journalReplay(String name) {
+            try {
+                String result = Journal.get(ctx).replay(name);
+                return result != null ? result : "null";
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.journalReplay failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** JSON array of journal names holding data. */
+        @android.webkit.JavascriptInterface
+        public String journalList() {
+            return Journal.get(ctx).list();
+        }
+
+        @android.webkit.JavascriptInterface
+        public String journalClear(String name) {
+            try {
+                Journal.get(ctx).clear(name);
+                return "OK";
+            } catch (Exception e) {
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Export the journal's last full state to /Download/<subPath>/<filename> (overwriting,
+         *  skipped if unchanged) and shrink the log. Returns the "Download/..." path. */
+        @android.webkit.JavascriptInterface
+        public String journalCompact(String name, String filename, String mimeType, String subPath) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                return Journal.get(ctx).compact(ctx, name, filename, mimeType, subPath);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.journalCompact failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        // ---- Async variants ----
+        // Same arguments and result strings as the sync calls, but they return a call id
+        // at once and run on NativeIo's executor; the result (incl. "ERROR: ...") arrives
+        // as window.onVPNativeResult(id, result). Returns "ERROR: busy" if the queue is full.
+
+        @android.webkit.JavascriptInterface
+        public String saveFileAsync(String base64Content, String filename, String mimeType, String subPath) {
+            return submit(new AsyncCall(AsyncCall.SAVE_FILE, base64Content, filename, mimeType, subPath));
+        }
+
+        @android.webkit.JavascriptInterface
+        public String saveTextFileAsync(String text, String filename, String mimeType, String subPath) {
+            return submit(new AsyncCall(AsyncCall.SAVE_TEXT, text, filename, mimeType, subPath));
         }
 
-        // 3-arg version kept for backward compatibility (delegates with null subPath)
         @android.webkit.JavascriptInterface
-        public String saveFile(String base64Content, String filename, String mimeType) {
-            return saveFile(base64Content, filename, mimeType, null);
+        public String listFilesAsync(String subPath) {
+            return submit(new AsyncCall(AsyncCall.LIST, subPath, null, null, null));
         }
 
         @android.webkit.JavascriptInterface
-        public String saveFile(String base64Content, String filename, String mimeType, String subPath) {
-            try {
-                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
-                if (base64Content == null) return "ERROR: content null";
-                if (mimeType == null || mimeType.isEmpty()) mimeType = "application/octet-stream";
-                byte[] data = android.util.Base64.decode(base64Content, android.util.Base64.DEFAULT);
-                return writeToDownloads(filename, mimeType, subPath, data);
-            } catch (Exception e) {
-                Log.e(TAG, "VPNative.saveFile failed", e);
-                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
-            }
+        public String readTextFileAsync(String subPath, String filename) {
+            return submit(new AsyncCall(AsyncCall.READ_TEXT, subPath, filename, null, null));
         }
 
-        // 3-arg version kept for backward compatibility
         @android.webkit.JavascriptInterface
-        public String saveTextFile(String text, String filename, String mimeType) {
-            return saveTextFile(text, filename, mimeType, null);
+        public String journalCompactAsync(String name, String filename, String mimeType, String subPath) {
+            return submit(new AsyncCall(AsyncCall.JOURNAL_COMPACT, name, filename, mimeType, subPath));
         }
 
+        /** commitBatch without blocking while the inline entries finish. Runs on its own
+         *  thread: it waits for inline writes queued on NativeIo and must not hold a slot there. */
         @android.webkit.JavascriptInterface
-        public String saveTextFile(String text, String filename, String mimeType, String subPath) {
-            try {
-                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
-                if (text == null) return "ERROR: text null";
-                if (mimeType == null || mimeType.isEmpty()) mimeType = "text/plain";
-                byte[] data = text.getBytes("UTF-8");
-                return writeToDownloads(filename, mimeType, subPath, data);
-            } catch (Exception e) {
-                Log.e(TAG, "VPNative.saveTextFile failed", e);
-                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+        public String commitBatchAsync(String batchId) {
+            AsyncCall call = new AsyncCall(AsyncCall.COMMIT_BATCH, batchId, null, null, null);
+            synchronized (this) {
+                call.id = "call" + (nextCallId++);
+            }
+            new Thread(call, "vp-batch-commit").start();
+            return call.id;
+        }
+
+        private String submit(AsyncCall call) {
+            synchronized (this) {
+                call.id = "call" + (nextCallId++);
+            }
+            return NativeIo.submit(call) ? call.id : "ERROR: busy";
+        }
+
+        /** One queued bridge call; runs the sync implementation off the JavaBridge thread. */
+        private class AsyncCall implements Runnable {
+            static final int SAVE_FILE = 0;
+            static final int SAVE_TEXT = 1;
+            static final int LIST = 2;
+            static final int READ_TEXT = 3;
+            static final int COMMIT_BATCH = 4;
+            static final int JOURNAL_COMPACT = 5;
+
+            private final int op;
+            private final String a, b, c, d;
+            String id;
+
+            AsyncCall(int op, String a, String b, String c, String d) {
+                this.op = op;
+                this.a = a;
+                this.b = b;
+                this.c = c;
+                this.d = d;
+            }
+
+            @Override
+            public void run() {
+                String result;
+                switch (op) {
+                    case SAVE_FILE: result = saveFile(a, b, c, d); break;
+                    case SAVE_TEXT: result = saveTextFile(a, b, c, d); break;
+                    case LIST: result = listFiles(a); break;
+                    case READ_TEXT: result = readTextFile(a, b); break;
+                    case COMMIT_BATCH: result = commitBatch(a); break;
+                    case JOURNAL_COMPACT: result = journalCompact(a, b, c, d); break;
+                    default: result = "ERROR: unknown op " + op;
+                }
+                owner.post(new EvalRunnable(owner, "window.onVPNativeResult && window.onVPNativeResult('"
+                    + id + "', " + org.json.JSONObject.quote(result) + ")", null));
             }
         }
 
@@ -886,38 +1540,36 @@ public class WebViewActivity extends Activity {
         /** List files + subdirectories in a subPath under /Download/.
          *  Returns JSON array: [{"name":"x","size":123,"mtime":1710000000,"isDir":false}, ...]
          *  On error returns "ERROR: ..." string. JS distinguishes by startsWith("[").
-         *  Used by DistoKML Organizer to auto-discover session folders at startup. */
+         *  Used by DistoKML Organizer to auto-discover session folders at startup.
+         *  Served from DownloadIndex, so repeated calls don't touch the disk. */
         @android.webkit.JavascriptInterface
         public String listFiles(String subPath) {
             try {
-                java.io.File downloads = android.os.Environment.getExternalStoragePublicDirectory(
-                    android.os.Environment.DIRECTORY_DOWNLOADS);
-                java.io.File dir = (subPath == null || subPath.isEmpty())
-                    ? downloads
-                    : new java.io.File(downloads, subPath);
-                if (!dir.exists()) return "ERROR: Not found: " + dir.getAbsolutePath();
-                if (!dir.isDirectory()) return "ERROR: Not a directory: " + dir.getAbsolutePath();
-                java.io.File[] files = dir.listFiles();
-                if (files == null) return "ERROR: Cannot list (permission?)";
-                org.json.JSONArray arr = new org.json.JSONArray();
-                for (java.io.File f : files) {
-                    org.json.JSONObject o = new org.json.JSONObject();
-                    o.put("name", f.getName());
-                    o.put("size", f.length());
-                    o.put("mtime", f.lastModified());
-                    o.put("isDir", f.isDirectory());
-                    arr.put(o);
-                }
-                return arr.toString();
+                return DownloadIndex.get(ctx).listJson(subPath);
             } catch (Exception e) {
                 Log.e(TAG, "VPNative.listFiles failed", e);
                 return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
             }
         }
 
+        /** Paged listing under /Download/<subPath>, optionally recursive and glob-filtered
+         *  ("*.dxf", "**&#47;session-*"; * and ? stay within a folder, ** crosses folders).
+         *  Returns {"items":[{"path","name","size","mtime","isDir"}],"total","offset","next"},
+         *  next = -1 on the last page; limit <= 0 returns everything. "ERROR: ..." otherwise. */
+        @android.webkit.JavascriptInterface
+        public String listFilesPaged(String subPath, boolean recursive, String glob, int offset, int limit) {
+            try {
+                return DownloadIndex.get(ctx).query(subPath, recursive, glob, offset, limit);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.listFilesPaged failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
         /** Read a UTF-8 text file from /Download/<subPath>/<filename>.
          *  Returns JSON {"content": "<full text>"} on success, "ERROR: ..." otherwise.
-         *  JS distinguishes by startsWith("{"). Max 10 MB per call. */
+         *  JS distinguishes by startsWith("{"). Max 10 MB per call; bigger files
+         *  go through readTextChunk / streamTextFile. */
         @android.webkit.JavascriptInterface
         public String readTextFile(String subPath, String filename) {
             try {
@@ -946,10 +1598,70 @@ public class WebViewActivity extends Activity {
             }
         }
 
+        /** Byte range of a UTF-8 text file in /Download/<subPath>/<filename>, no size cap.
+         *  Returns {"content","offset","next","size","eof"}; continue from "next" (always a
+         *  character boundary) until eof. "ERROR: ..." otherwise. maxBytes <= 0 means 256 KB. */
+        @android.webkit.JavascriptInterface
+        public String readTextChunk(String subPath, String filename, long offset, int maxBytes) {
+            try {
+                if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+                java.io.File file = TextFileReader.resolve(subPath, filename);
+                if (!file.isFile()) return "ERROR: File not found: " + file.getAbsolutePath();
+                return TextFileReader.readChunk(file, offset, maxBytes);
+            } catch (Exception e) {
+                Log.e(TAG, "VPNative.readTextChunk failed", e);
+                return "ERROR: " + e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        /** Read a whole text file in the background without blocking the page. Returns a read
+         *  id at once; chunks arrive as window.onVPNativeChunk(id, chunk) in order (same shape
+         *  as readTextChunk), the next one only after the page has taken the previous one.
+         *  Errors arrive as onVPNativeChunk(id, null, "message"). */
+        @android.webkit.JavascriptInterface
+        public String streamTextFile(String subPath, String filename, int chunkBytes) {
+            if (filename == null || filename.isEmpty()) return "ERROR: filename required";
+            String id;
+            TextFileReader.Stream stream;
+            synchronized (reads) {
+                id = "read" + (nextReadId++);
+                stream = new TextFileReader.Stream(TextFileReader.resolve(subPath, filename),
+                    chunkBytes, new JsChunkSink(owner, id));
+                reads.put(id, stream);
+            }
+            new Thread(new ReadRunnable(id, stream), "vp-read-" + id).start();
+            return id;
+        }
+
+        @android.webkit.JavascriptInterface
+        public boolean cancelRead(String id) {
+            synchronized (reads) {
+                TextFileReader.Stream stream = reads.remove(id);
+                if (stream == null) return false;
+                stream.cancel();
+                return true;
+            }
+        }
+
+        private class ReadRunnable implements Runnable {
+            private final String id;
+            private final TextFileReader.Stream stream;
+            ReadRunnable(String id, TextFileReader.Stream stream) { this.id = id; this.stream = stream; }
+
+            @Override
+            public void run() {
+                try {
+                    stream.run();
+                } finally {
+                    synchronized (reads) { reads.remove(id); }
+                }
+            }
+        }
+
         // ---- Leica DISTO direct BLE bridge ----
         // DistoKML calls these to scan for, connect to, and receive measurements
-        // from a Leica DISTO X3 (and eventually DST360). Results arrive as JS events
-        // via window.onLeicaEvent(type, data).
+        // from a Leica DISTO X3 (and eventually DST360). Results arrive as batched JS
+        // events via window.onLeicaEvents([...]) or, per event, window.onLeicaEvent(type, data).
 
         @android.webkit.JavascriptInterface
         public String leicaIsSupported() {
@@ -1018,6 +1730,13 @@ public class WebViewActivity extends Activity {
             return leicaBridge.triggerMeasure();
         }
 
+        /** Hold the low-latency link while the user is actively measuring; false lets it relax. */
+        @android.webkit.JavascriptInterface
+        public String leicaSetMeasuring(boolean measuring) {
+            if (leicaBridge == null) return "NO_BRIDGE";
+            return leicaBridge.setMeasuring(measuring);
+        }
+
         @android.webkit.JavascriptInterface
         public String leicaWriteCommand(String hexBytes) {
             if (leicaBridge == null) return "NO_BRIDGE";
@@ -1057,72 +1776,135 @@ public class WebViewActivity extends Activity {
             if (leicaBridge == null) return "NO_BRIDGE";
             return leicaBridge.readDeviceInfo();
         }
+    }
 
-        // Sanitize a user-provided subPath to make it safe for MediaStore RELATIVE_PATH.
-        // Rules: strip leading/trailing slashes, replace Windows-invalid chars, drop ..
-        // segments, clamp total length. Returns empty string if the result is empty.
-        private String sanitizeSubPath(String sub) {
-            if (sub == null) return "";
-            String cleaned = sub.trim();
-            // Replace invalid filesystem chars
-            cleaned = cleaned.replaceAll("[:*?\"<>|]", "_");
-            // Strip leading/trailing slashes + backslashes
-            cleaned = cleaned.replaceAll("^[/\\\\]+", "").replaceAll("[/\\\\]+$", "");
-            // Normalize backslashes to forward slashes
-            cleaned = cleaned.replace('\\', '/');
-            // Drop any ".." segments for safety
-            String[] parts = cleaned.split("/");
-            StringBuilder out = new StringBuilder();
-            for (String p : parts) {
-                String trimmed = p.trim();
-                if (trimmed.isEmpty()) continue;
-                if (trimmed.equals("..") || trimmed.equals(".")) continue;
-                if (out.length() > 0) out.append('/');
-                out.append(trimmed);
-            }
-            String result = out.toString();
-            // Clamp length to avoid MediaStore path errors
-            if (result.length() > 120) result = result.substring(0, 120);
-            return result;
-        }
-
-        private String writeToDownloads(String filename, String mimeType, String subPath, byte[] data) throws Exception {
-            android.content.ContentValues values = new android.content.ContentValues();
-            values.put(android.provider.MediaStore.Downloads.DISPLAY_NAME, filename);
-            values.put(android.provider.MediaStore.Downloads.MIME_TYPE, mimeType);
-
-            // MediaStore RELATIVE_PATH expects paths rooted at Download/ etc.
-            // For nested folders, append the sanitized sub-path.
-            String relativePath = android.os.Environment.DIRECTORY_DOWNLOADS;
-            String cleanSub = sanitizeSubPath(subPath);
-            if (!cleanSub.isEmpty()) {
-                relativePath = relativePath + "/" + cleanSub;
-            }
-            values.put(android.provider.MediaStore.Downloads.RELATIVE_PATH, relativePath);
-            values.put(android.provider.MediaStore.Downloads.IS_PENDING, 1);
-
-            android.content.ContentResolver resolver = ctx.getContentResolver();
-            android.net.Uri collection = android.provider.MediaStore.Downloads.getContentUri(
-                android.provider.MediaStore.VOLUME_EXTERNAL_PRIMARY);
-            android.net.Uri item = resolver.insert(collection, values);
-            if (item == null) throw new RuntimeException("MediaStore insert returned null");
-
-            java.io.OutputStream os = null;
-            try {
-                os = resolver.openOutputStream(item);
-                if (os == null) throw new RuntimeException("openOutputStream returned null");
-                os.write(data);
-                os.flush();
-            } finally {
-                if (os != null) try { os.close(); } catch (Exception ignore) {}
+    /** Periodic saveState() of live tabs while we're visible, for crash recovery */
+    private class SnapshotRunnable implements Runnable {
+        @Override
+        public void run() {
+            for (int i = 0; i < tabs.size(); i++) {
+                if (tabs.get(i).webView != null) snapshotTab(tabs.get(i));
+            }
+            handler.postDelayed(this, SNAPSHOT_INTERVAL_MS);
+        }
+    }
+
+    /** Bring back a crashed tab if it's still the visible one; otherwise it waits for a switch */
+    private class RestoreTabRunnable implements Runnable {
+        private final String tabId;
+        RestoreTabRunnable(String tabId) { this.tabId = tabId; }
+
+        @Override
+        public void run() {
+            int index = indexOfTab(tabId);
+            if (index >= 0 && index == activeTabIndex && tabs.get(index).state == TAB_HIBERNATED) {
+                switchToTab(index);
+            }
+        }
+    }
+
+    private class RestoreNextRunnable implements Runnable {
+        @Override
+        public void run() {
+            restoreNextQueued();
+        }
+    }
+
+    private class PageReadyRunnable implements Runnable {
+        private final WebView view;
+        PageReadyRunnable(WebView view) { this.view = view; }
+
+        @Override
+        public void run() {
+            onPageReady(view);
+        }
+    }
+
+    /** Fallback for pages that never call notifyReady(): ready once a share handler exists */
+    private class ShareProbeRunnable implements Runnable {
+        @Override
+        public void run() {
+            TabInfo active = getActiveTab();
+            if (pendingShares.isEmpty() || active == null || active.webView == null) return;
+            if (++shareProbes > SHARE_PROBE_LIMIT) {
+                Log.w(TAG, "Page never became ready for " + pendingShares.size() + " shared file(s)");
+                return;   // still queued: next page load, tab switch or notifyReady retries
             }
+            active.webView.evaluateJavascript(
+                "!!(window.onSharedFile || window.onDxfImported)",
+                new ShareProbeCallback(active.webView));
+            handler.postDelayed(this, SHARE_PROBE_MS);
+        }
+    }
+
+    private class ShareProbeCallback implements ValueCallback<String> {
+        private final WebView view;
+        ShareProbeCallback(WebView view) { this.view = view; }
+
+        @Override
+        public void onReceiveValue(String value) {
+            if ("true".equals(value)) onPageReady(view);
+        }
+    }
+
+    /**
+     * Delivers TextFileReader chunks to window.onVPNativeChunk, one at a time: the reader
+     * blocks until evaluateJavascript has returned for the previous chunk, so at most
+     * one chunk is in memory. Gives up, reporting an error, if the page stops answering
+     * (tab closed or paused).
+     */
+    private static class JsChunkSink implements TextFileReader.Sink {
+        private static final long DELIVERY_TIMEOUT_MS = 30000;
+        private final WebView target;
+        private final String jsPrefix;
+        private final java.util.concurrent.Semaphore delivered = new java.util.concurrent.Semaphore(0);
+
+        JsChunkSink(WebView target, String id) {
+            this.target = target;
+            this.jsPrefix = "window.onVPNativeChunk && window.onVPNativeChunk('" + id + "', ";
+        }
+
+        @Override
+        public boolean onChunk(String chunkJson) throws InterruptedException {
+            target.post(new EvalRunnable(target, jsPrefix + chunkJson + ")", new ReleaseCallback(delivered)));
+            if (delivered.tryAcquire(DELIVERY_TIMEOUT_MS, java.util.concurrent.TimeUnit.MILLISECONDS)) return true;
+            // Queued behind the stalled chunk, so it arrives if the page ever wakes up
+            onError("delivery timed out");
+            return false;
+        }
+
+        @Override
+        public void onError(String message) {
+            target.post(new EvalRunnable(target,
+                jsPrefix + "null, " + org.json.JSONObject.quote(message) + ")", null));
+        }
+    }
+
+    private static class EvalRunnable implements Runnable {
+        private final WebView target;
+        private final String js;
+        private final ValueCallback<String> callback;
+
+        EvalRunnable(WebView target, String js, ValueCallback<String> callback) {
+            this.target = target;
+            this.js = js;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            try { target.evaluateJavascript(js, callback); }
+            catch (Exception e) { Log.w(TAG, "evaluateJavascript failed: " + e.getMessage()); }
+        }
+    }
 
-            android.content.ContentValues clear = new android.content.ContentValues();
-            clear.put(android.provider.MediaStore.Downloads.IS_PENDING, 0);
-            resolver.update(item, clear, null, null);
+    private static class ReleaseCallback implements ValueCallback<String> {
+        private final java.util.concurrent.Semaphore semaphore;
+        ReleaseCallback(java.util.concurrent.Semaphore semaphore) { this.semaphore = semaphore; }
 
-            Log.d(TAG, "VPNative.saveFile wrote " + data.length + " bytes to " + relativePath + "/" + filename);
-            return relativePath + "/" + filename;
+        @Override
+        public void onReceiveValue(String value) {
+            semaphore.release();
         }
     }
 
@@ -1147,13 +1929,28 @@ public class WebViewActivity extends Activity {
      *   unit     3ab10102-f831-4395-b29d-570977d5bf94  (u16)
      * Unknown (phase 2 via sniffing): DST360 H/V angle, command/trigger, face, battery.
      *
-     * JS event types (dispatched via window.onLeicaEvent(type, data)):
+     * Events are queued and delivered at most once per EVENT_FRAME_MS as one
+     * window.onLeicaEvents([{type, data}, ...]) call (falling back to per-event
+     * window.onLeicaEvent(type, data)). The next batch waits until the page has
+     * run the previous one; the queue is bounded, dropping the oldest events.
+     *
+     * JS event types:
      *   state       — {state: "idle|scanning|connecting|connected|error"}
      *   deviceFound — {address, name, rssi}
      *   connected   — {}
      *   disconnected— {}
      *   measurement — {distance, rawHex, length}
      *   error       — {stage, msg|code}
+     *   overflow    — {dropped}  (events lost because the page fell behind)
+     *   mtu         — {mtu, status}
+     *   connectionPriority — {priority: "high|balanced|lowPower"}
+     *   latency     — {ms, p50Ms, p95Ms, count, mtu}  (triggerMeasure → first notification)
+     *
+     * Connection profile: after service discovery the MTU is raised to TARGET_MTU
+     * and the link goes to CONNECTION_PRIORITY_HIGH (7.5-15 ms interval instead of
+     * the default ~50 ms). It stays there while measuring — commands, notifications,
+     * or the page holding leicaSetMeasuring(true) — then steps down to BALANCED
+     * after ACTIVE_HOLD_MS idle and to LOW_POWER after LOW_POWER_AFTER_MS.
      */
     private class LeicaBleBridge {
         static final String BTAG = "LeicaBle";
@@ -1168,51 +1965,54 @@ public class WebViewActivity extends Activity {
         // Standard BLE Device Information Service
         final UUID DEVINFO_SVC_UUID  = UUID.fromString("0000180a-0000-1000-8000-00805f9b34fb");
 
+        final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+        final byte[] EMPTY_BYTES = new byte[0];
+        static final long EVENT_FRAME_MS = 16;
+        static final int MAX_QUEUED_EVENTS = 512;
+        static final long DELIVERY_TIMEOUT_MS = 2000;
+        static final int DEFAULT_MTU = 23;
+        static final int TARGET_MTU = 247;
+        static final long ACTIVE_HOLD_MS = 15000;
+        static final long LOW_POWER_AFTER_MS = 120000;
+
         private BluetoothAdapter adapter;
         private BluetoothLeScanner scanner;
         private BluetoothGatt gatt;
         private String state = "idle";
         private boolean scanning = false;
-        // Queue of characteristics whose CCCD descriptor still needs to be written
-        // to enable notifications. Android only allows one pending GATT write at a
-        // time, so we write them sequentially via onDescriptorWrite callbacks.
-        private final java.util.ArrayDeque<BluetoothGattCharacteristic> pendingNotifyQueue =
-            new java.util.ArrayDeque<>();
-
-        private void writeNextNotifyDescriptor(BluetoothGatt g) {
-            if (pendingNotifyQueue.isEmpty()) {
-                // All writes done — we're ready to receive notifications.
-                setState("connected");
-                dispatchEvent("connected", "{}");
-                return;
+        // Every read/write/CCCD/MTU request goes through here: Android allows one
+        // outstanding GATT op, and a lost callback must not stall the connection.
+        private final GattOperationQueue gattQueue = new GattOperationQueue(handler);
+        private final GattErrorCallback readErrors = new GattErrorCallback("read");
+        private final GattErrorCallback writeErrors = new GattErrorCallback("write");
+        // Notification enables still outstanding; "connected" is announced when it reaches 0
+        private final java.util.concurrent.atomic.AtomicInteger notifyRemaining =
+            new java.util.concurrent.atomic.AtomicInteger();
+
+        /** Reports failed (after retries) or timed-out GATT operations as error events. */
+        private class GattErrorCallback implements GattOperationQueue.Callback {
+            private final String stage;
+            GattErrorCallback(String stage) { this.stage = stage; }
+
+            @Override
+            public void onResult(GattOperationQueue.Op op, boolean ok, String error) {
+                if (ok) return;
+                dispatchEvent("error", "{\"stage\":\"" + stage + "\",\"uuid\":\"" + op.uuid()
+                    + "\",\"msg\":\"" + jsEscape(error) + "\"}");
             }
-            BluetoothGattCharacteristic ch = pendingNotifyQueue.poll();
-            try {
-                if (!g.setCharacteristicNotification(ch, true)) {
-                    Log.w(BTAG, "setCharacteristicNotification false for " + ch.getUuid());
-                    // Try next anyway
-                    writeNextNotifyDescriptor(g);
-                    return;
-                }
-                BluetoothGattDescriptor cccd = ch.getDescriptor(CCCD_UUID);
-                if (cccd == null) {
-                    Log.w(BTAG, "no CCCD for " + ch.getUuid());
-                    writeNextNotifyDescriptor(g);
-                    return;
-                }
-                boolean isIndicate =
-                    (ch.getProperties() & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
-                cccd.setValue(isIndicate
-                    ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE
-                    : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                if (!g.writeDescriptor(cccd)) {
-                    Log.w(BTAG, "writeDescriptor returned false for " + ch.getUuid());
-                    writeNextNotifyDescriptor(g);
+        }
+
+        /** One notification enable done (or given up on; the others may still work). */
+        private class NotifyEnabledCallback implements GattOperationQueue.Callback {
+            @Override
+            public void onResult(GattOperationQueue.Op op, boolean ok, String error) {
+                if (!ok) Log.w(BTAG, "notify enable for " + op.uuid() + " failed: " + error);
+                if (notifyRemaining.decrementAndGet() == 0) {
+                    markActive();
+                    // All writes done — we're ready to receive notifications.
+                    setState("connected");
+                    dispatchEvent("connected", "{}");
                 }
-                // Else wait for onDescriptorWrite callback to invoke writeNextNotifyDescriptor
-            } catch (SecurityException e) {
-                dispatchEvent("error",
-                    "{\"stage\":\"notify\",\"msg\":\"" + jsEscape(e.getMessage()) + "\"}");
             }
         }
 
@@ -1389,22 +2189,12 @@ public class WebViewActivity extends Activity {
          * char currently holds — might reveal protocol version, device state,
          * or unexpected values that hint at the command format.
          */
-        private final java.util.ArrayDeque<BluetoothGattCharacteristic> pendingReadQueue =
-            new java.util.ArrayDeque<>();
-
         String readAllChars() {
             if (gatt == null) return "NOT_CONNECTED";
             BluetoothGattService svc = gatt.getService(SVC_UUID);
             if (svc == null) return "NO_SERVICE";
-            pendingReadQueue.clear();
-            for (BluetoothGattCharacteristic ch : svc.getCharacteristics()) {
-                if ((ch.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ) != 0) {
-                    pendingReadQueue.add(ch);
-                }
-            }
-            int n = pendingReadQueue.size();
+            int n = queueReads(svc);
             Log.d(BTAG, "readAllChars: queued " + n + " reads");
-            readNextChar(gatt);
             return "QUEUED:" + n;
         }
 
@@ -1417,18 +2207,21 @@ public class WebViewActivity extends Activity {
             if (gatt == null) return "NOT_CONNECTED";
             BluetoothGattService svc = gatt.getService(DEVINFO_SVC_UUID);
             if (svc == null) return "NO_DEVINFO_SERVICE";
+            int count = queueReads(svc);
+            Log.d(BTAG, "readDeviceInfo: queued " + count + " reads");
+            return "QUEUED:" + count;
+        }
+
+        private int queueReads(BluetoothGattService svc) {
             int count = 0;
             for (BluetoothGattCharacteristic ch : svc.getCharacteristics()) {
                 if ((ch.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ) != 0) {
-                    pendingReadQueue.add(ch);
+                    gattQueue.enqueue(GattOperationQueue.Op.read(ch,
+                        GattOperationQueue.PRIORITY_DIAGNOSTIC, readErrors));
                     count++;
                 }
             }
-            if (count > 0 && pendingReadQueue.size() == count) {
-                readNextChar(gatt);
-            }
-            Log.d(BTAG, "readDeviceInfo: queued " + count + " reads");
-            return "QUEUED:" + count;
+            return count;
         }
 
         /**
@@ -1442,28 +2235,109 @@ public class WebViewActivity extends Activity {
             if (batSvc == null) return "NO_BATTERY_SERVICE";
             BluetoothGattCharacteristic batChar = batSvc.getCharacteristic(BATTERY_CHAR_UUID);
             if (batChar == null) return "NO_BATTERY_CHAR";
+            gattQueue.enqueue(GattOperationQueue.Op.read(batChar,
+                GattOperationQueue.PRIORITY_DIAGNOSTIC, readErrors));
+            Log.d(BTAG, "readBatteryLevel: queued");
+            return "OK";
+        }
+
+        // ---- Connection profile ----
+
+        private int mtu = DEFAULT_MTU;
+        private int connPriority = -1;
+        private boolean measuringHeld;
+        private volatile long lastActivity;   // uptimeMillis of the last command/notification
+        private long triggerAtNanos;          // 0 unless a trigger awaits its measurement
+        private final LatencyHistogram triggerLatency = new LatencyHistogram();
+        private final IdleStepRunnable idleStepRunnable = new IdleStepRunnable();
+
+        /** Page-driven measuring session: hold HIGH priority until set back to false. */
+        synchronized String setMeasuring(boolean on) {
+            if (gatt == null) return "NOT_CONNECTED";
+            measuringHeld = on;
+            markActive();
+            return "OK";
+        }
+
+        /** Go (or stay) HIGH and restart the idle countdown. */
+        private synchronized void markActive() {
+            lastActivity = android.os.SystemClock.uptimeMillis();
+            setConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+            handler.removeCallbacks(idleStepRunnable);
+            if (!measuringHeld) handler.postDelayed(idleStepRunnable, ACTIVE_HOLD_MS);
+        }
+
+        private synchronized void setConnectionPriority(int priority) {
+            if (gatt == null || priority == connPriority) return;
             try {
-                // Queue it into the pending read queue so onCharacteristicRead handles it
-                pendingReadQueue.add(batChar);
-                if (pendingReadQueue.size() == 1) {
-                    readNextChar(gatt);  // kick off if queue was empty
+                if (!gatt.requestConnectionPriority(priority)) {
+                    Log.w(BTAG, "requestConnectionPriority(" + priority + ") refused");
+                    return;
                 }
-                Log.d(BTAG, "readBatteryLevel: queued");
-                return "OK";
             } catch (SecurityException e) {
-                return "SECURITY:" + e.getMessage();
+                Log.w(BTAG, "requestConnectionPriority: " + e.getMessage());
+                return;
             }
+            connPriority = priority;
+            String name = priority == BluetoothGatt.CONNECTION_PRIORITY_HIGH ? "high"
+                : priority == BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER ? "lowPower" : "balanced";
+            Log.d(BTAG, "connection priority " + name);
+            dispatchEvent("connectionPriority", "{\"priority\":\"" + name + "\"}");
         }
 
-        private void readNextChar(BluetoothGatt g) {
-            if (pendingReadQueue.isEmpty()) return;
-            BluetoothGattCharacteristic ch = pendingReadQueue.poll();
-            try {
-                g.readCharacteristic(ch);
-            } catch (SecurityException e) {
-                dispatchEvent("error", "{\"stage\":\"read\",\"msg\":\"" + jsEscape(e.getMessage()) + "\"}");
-                readNextChar(g);
+        private synchronized void resetProfile() {
+            handler.removeCallbacks(idleStepRunnable);
+            mtu = DEFAULT_MTU;
+            connPriority = -1;
+            measuringHeld = false;
+            triggerAtNanos = 0;
+        }
+
+        /** Notification path: cheap unless we have already stepped down from HIGH. */
+        private void onActivity() {
+            lastActivity = android.os.SystemClock.uptimeMillis();
+            if (connPriority != BluetoothGatt.CONNECTION_PRIORITY_HIGH) markActive();
+        }
+
+        /** HIGH → BALANCED after ACTIVE_HOLD_MS idle, → LOW_POWER after LOW_POWER_AFTER_MS. */
+        private class IdleStepRunnable implements Runnable {
+            @Override
+            public void run() {
+                synchronized (LeicaBleBridge.this) {
+                    if (gatt == null || measuringHeld) return;
+                    long idle = android.os.SystemClock.uptimeMillis() - lastActivity;
+                    if (idle < ACTIVE_HOLD_MS) {
+                        // Notifications kept us busy; check again when the hold runs out
+                        handler.postDelayed(this, ACTIVE_HOLD_MS - idle);
+                    } else if (idle < LOW_POWER_AFTER_MS) {
+                        setConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+                        handler.postDelayed(this, LOW_POWER_AFTER_MS - idle);
+                    } else {
+                        setConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
+                    }
+                }
+            }
+        }
+
+        /** Called with the first notification after a trigger. */
+        private void reportTriggerLatency(long nowNanos) {
+            long micros;
+            long p50;
+            long p95;
+            long count;
+            synchronized (this) {
+                if (triggerAtNanos == 0) return;
+                micros = (nowNanos - triggerAtNanos) / 1000;
+                triggerAtNanos = 0;
+                triggerLatency.record(micros);
+                p50 = triggerLatency.percentile(50);
+                p95 = triggerLatency.percentile(95);
+                count = triggerLatency.count();
             }
+            Log.d(BTAG, "trigger latency " + LatencyHistogram.format(micros));
+            dispatchEvent("latency", String.format(Locale.US,
+                "{\"ms\":%.1f,\"p50Ms\":%.1f,\"p95Ms\":%.1f,\"count\":%d,\"mtu\":%d}",
+                micros / 1000.0, p50 / 1000.0, p95 / 1000.0, count, mtu));
         }
 
         /**
@@ -1481,7 +2355,8 @@ public class WebViewActivity extends Activity {
                 try { gatt.close(); } catch (Exception ignore) {}
                 gatt = null;
             }
-            pendingNotifyQueue.clear();
+            gattQueue.clear();
+            resetProfile();
             state = "idle";
             dispatchEvent("state", "{\"state\":\"idle\"}");
             dispatchEvent("disconnected", "{\"reason\":\"forceReset\"}");
@@ -1492,6 +2367,8 @@ public class WebViewActivity extends Activity {
         /**
          * Write arbitrary bytes to the Leica command characteristic (3ab10120, W).
          * Used to trigger measurements, switch face, rotate DST360 etc.
+         * Queued ahead of diagnostic reads; "OK" means queued, a write that
+         * still fails after retries arrives as an error event (stage "write").
          */
         String writeCommand(String hexBytes) {
             if (gatt == null) return "NOT_CONNECTED";
@@ -1503,15 +2380,15 @@ public class WebViewActivity extends Activity {
                 if (svc == null) return "NO_SERVICE";
                 BluetoothGattCharacteristic cmdChar = svc.getCharacteristic(CMD_UUID);
                 if (cmdChar == null) return "NO_COMMAND_CHAR";
-                cmdChar.setValue(data);
                 int wt = BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
                 if ((cmdChar.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0) {
                     wt = BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
                 }
-                cmdChar.setWriteType(wt);
-                boolean ok = gatt.writeCharacteristic(cmdChar);
-                Log.d(BTAG, "writeCommand bytes=" + hexBytes + " queued=" + ok);
-                return ok ? "OK" : "WRITE_FAILED";
+                markActive();
+                gattQueue.enqueue(GattOperationQueue.Op.write(cmdChar, data, wt,
+                    GattOperationQueue.PRIORITY_COMMAND, writeErrors));
+                Log.d(BTAG, "writeCommand bytes=" + hexBytes + " queued");
+                return "OK";
             } catch (SecurityException e) {
                 return "NO_PERMISSION";
             } catch (Exception e) {
@@ -1526,6 +2403,9 @@ public class WebViewActivity extends Activity {
          * If this doesn't work, user can experiment via writeAsciiCommand.
          */
         String triggerMeasure() {
+            synchronized (this) {
+                triggerAtNanos = android.os.SystemClock.elapsedRealtimeNanos();
+            }
             return writeAsciiCommand("@DIST\r\n");
         }
 
@@ -1602,11 +2482,14 @@ public class WebViewActivity extends Activity {
             public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
                 Log.d(BTAG, "onConnectionStateChange status=" + status + " newState=" + newState);
                 if (newState == BluetoothProfile.STATE_CONNECTED) {
+                    gattQueue.attach(g);
                     try { g.discoverServices(); } catch (SecurityException e) {
                         dispatchEvent("error",
                             "{\"stage\":\"discoverServices\",\"msg\":\"" + jsEscape(e.getMessage()) + "\"}");
                     }
                 } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                    gattQueue.clear();
+                    resetProfile();
                     try { g.close(); } catch (Exception ignore) {}
                     gatt = null;
                     setState("idle");
@@ -1670,95 +2553,87 @@ public class WebViewActivity extends Activity {
                         "{\"stage\":\"characteristic\",\"msg\":\"No notifiable characteristics in Leica service\"}");
                     return;
                 }
-                // Queue CCCD writes so they don't clobber each other (Android only allows
-                // one pending GATT write at a time). We track them via onDescriptorWrite.
-                pendingNotifyQueue.clear();
+                // CCCD writes go through the GATT queue one at a time; the last one
+                // to finish announces "connected".
+                // Bigger MTU first (whole X3/DST360 packets in one notification), and a
+                // short connection interval so setup and the first measurement are quick
+                markActive();
+                gattQueue.enqueue(GattOperationQueue.Op.requestMtu(TARGET_MTU, null));
+                notifyRemaining.set(notifiable.size());
+                NotifyEnabledCallback enabled = new NotifyEnabledCallback();
                 for (BluetoothGattCharacteristic ch : notifiable) {
-                    pendingNotifyQueue.add(ch);
+                    gattQueue.enqueue(GattOperationQueue.Op.enableNotify(ch, enabled));
                 }
-                writeNextNotifyDescriptor(g);
             }
 
             @Override
             public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor desc, int status) {
                 Log.d(BTAG, "descWrite " + desc.getCharacteristic().getUuid()
                     + " status=" + status);
-                writeNextNotifyDescriptor(g);
+                gattQueue.completeDescriptor(desc, status);
+            }
+
+            @Override
+            public void onCharacteristicWrite(BluetoothGatt g, BluetoothGattCharacteristic ch, int status) {
+                Log.d(BTAG, "charWrite " + ch.getUuid() + " status=" + status);
+                gattQueue.complete(GattOperationQueue.WRITE, ch, status);
+            }
+
+            @Override
+            public void onMtuChanged(BluetoothGatt g, int newMtu, int status) {
+                Log.d(BTAG, "mtu " + newMtu + " status=" + status);
+                if (status == BluetoothGatt.GATT_SUCCESS) mtu = newMtu;
+                dispatchEvent("mtu", "{\"mtu\":" + newMtu + ",\"status\":" + status + "}");
+                gattQueue.completeMtu(status);
             }
 
             @Override
             public void onCharacteristicRead(BluetoothGatt g, BluetoothGattCharacteristic ch, int status) {
                 byte[] raw = ch.getValue();
-                if (raw == null) raw = new byte[0];
-                String hex = bytesToHex(raw);
-                // Try ASCII decode
-                StringBuilder sb = new StringBuilder();
-                boolean allPrintable = true;
-                for (byte b : raw) {
-                    int v = b & 0xFF;
-                    if ((v >= 0x20 && v <= 0x7E) || v == 0x0D || v == 0x0A || v == 0x09) {
-                        if (v == 0x0D) sb.append("\\r");
-                        else if (v == 0x0A) sb.append("\\n");
-                        else if (v == 0x09) sb.append("\\t");
-                        else sb.append((char) v);
-                    } else { allPrintable = false; break; }
+                if (raw == null) raw = EMPTY_BYTES;
+                String event;
+                synchronized (packetJson) {
+                    StringBuilder sb = beginEvent("charRead");
+                    sb.append("{\"uuid\":\"").append(uuidString(ch.getUuid())).append('"');
+                    appendRaw(sb, raw);
+                    sb.append(",\"status\":").append(status).append('}');
+                    event = endEvent();
                 }
-                String ascii = allPrintable ? sb.toString() : "";
-                String json = String.format(Locale.US,
-                    "{\"uuid\":\"%s\",\"rawHex\":\"%s\",\"ascii\":\"%s\",\"isAscii\":%s,\"length\":%d,\"status\":%d}",
-                    jsEscape(ch.getUuid().toString()), hex, jsEscape(ascii),
-                    allPrintable ? "true" : "false", raw.length, status);
-                Log.d(BTAG, "charRead: " + json);
-                dispatchEvent("charRead", json);
-                // Continue queue
-                readNextChar(g);
+                Log.d(BTAG, event);
+                queueEvent(event);
+                gattQueue.complete(GattOperationQueue.READ, ch, status);
             }
 
             @Override
             public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic ch) {
+                long now = android.os.SystemClock.elapsedRealtimeNanos();
                 byte[] raw = ch.getValue();
                 if (raw == null || raw.length == 0) return;
-                String chUuid = ch.getUuid().toString();
-                String hex = bytesToHex(raw);
-                // ASCII decode
-                StringBuilder sb = new StringBuilder();
-                boolean allPrintable = true;
-                for (byte b : raw) {
-                    int v = b & 0xFF;
-                    if ((v >= 0x20 && v <= 0x7E) || v == 0x0D || v == 0x0A || v == 0x09) {
-                        if (v == 0x0D) sb.append("\\r");
-                        else if (v == 0x0A) sb.append("\\n");
-                        else if (v == 0x09) sb.append("\\t");
-                        else sb.append((char) v);
-                    } else {
-                        allPrintable = false;
-                        break;
-                    }
-                }
-                String ascii = allPrintable ? sb.toString() : "";
+                onActivity();
                 // X3 distance packet format (observed empirically):
                 //   [0:4]  float32 LE distance (meters)
                 //   [4:8]  float32 LE field2 (likely tilt in radians, or possibly
                 //          unused — needs ground-truth calibration to confirm)
                 //   [16:18] uint16 LE counter
-                float meters = 0f;
-                float field2 = 0f;
-                int counter = -1;
-                if (raw.length >= 4) {
-                    meters = ByteBuffer.wrap(raw, 0, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat();
-                }
-                if (raw.length >= 8) {
-                    field2 = ByteBuffer.wrap(raw, 4, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat();
-                }
-                if (raw.length >= 18) {
-                    counter = ByteBuffer.wrap(raw, 16, 2).order(ByteOrder.LITTLE_ENDIAN).getShort() & 0xFFFF;
+                float meters = raw.length >= 4 ? leFloat(raw, 0) : 0f;
+                float field2 = raw.length >= 8 ? leFloat(raw, 4) : 0f;
+                int counter = raw.length >= 18 ? leU16(raw, 16) : -1;
+                String event;
+                synchronized (packetJson) {
+                    StringBuilder sb = beginEvent("measurement");
+                    sb.append("{\"uuid\":\"").append(uuidString(ch.getUuid()))
+                        .append("\",\"distance\":");
+                    appendFixed6(sb, meters);
+                    sb.append(",\"field2\":");
+                    appendFixed6(sb, field2);
+                    sb.append(",\"counter\":").append(counter);
+                    appendRaw(sb, raw);
+                    sb.append('}');
+                    event = endEvent();
                 }
-                String json = String.format(Locale.US,
-                    "{\"uuid\":\"%s\",\"distance\":%f,\"field2\":%f,\"counter\":%d,\"rawHex\":\"%s\",\"ascii\":\"%s\",\"isAscii\":%s,\"length\":%d}",
-                    jsEscape(chUuid), meters, field2, counter, hex, jsEscape(ascii),
-                    allPrintable ? "true" : "false", raw.length);
-                Log.d(BTAG, "measurement: " + json);
-                dispatchEvent("measurement", json);
+                Log.d(BTAG, event);
+                queueEvent(event);
+                reportTriggerLatency(now);
             }
         };
 
@@ -1768,21 +2643,109 @@ public class WebViewActivity extends Activity {
                 String.format(Locale.US, "{\"state\":\"%s\"}", jsEscape(s)));
         }
 
-        private void dispatchEvent(final String type, final String jsonData) {
-            if (activeTabIndex < 0 || activeTabIndex >= tabs.size()) {
-                Log.w(BTAG, "dispatchEvent no tab for " + type);
-                return;
+        // Guarded by itself; touched from GATT binder threads and the UI thread
+        private final java.util.ArrayDeque<String> eventQueue = new java.util.ArrayDeque<>();
+        private int droppedEvents;
+        private boolean flushScheduled;
+        private long inFlightSince;   // 0 when the page has run the last batch
+        private final EventFlushRunnable eventFlushRunnable = new EventFlushRunnable();
+        private final EventDeliveredCallback eventDeliveredCallback = new EventDeliveredCallback();
+
+        private void dispatchEvent(String type, String jsonData) {
+            queueEvent("{\"type\":\"" + type + "\",\"data\":" + jsonData + "}");
+        }
+
+        /** event is a complete {"type","data"} object, e.g. from beginEvent/endEvent. */
+        private void queueEvent(String event) {
+            synchronized (eventQueue) {
+                if (eventQueue.size() >= MAX_QUEUED_EVENTS) {
+                    eventQueue.poll();
+                    droppedEvents++;
+                }
+                eventQueue.add(event);
+                scheduleEventFlush();
             }
-            final WebView target = tabs.get(activeTabIndex).webView;
-            if (target == null) return;
-            final String js = "(function(){ if(window.onLeicaEvent) window.onLeicaEvent('"
-                + type + "', " + jsonData + "); })();";
-            target.post(new Runnable() {
-                @Override public void run() {
-                    try { target.evaluateJavascript(js, null); }
-                    catch (Exception e) { Log.e(BTAG, "evaluateJs failed", e); }
+        }
+
+        /**
+         * Caller holds eventQueue. While a batch is in flight the flush waits for its
+         * callback, or for DELIVERY_TIMEOUT_MS in case the page never answers.
+         */
+        private void scheduleEventFlush() {
+            if (flushScheduled) return;
+            flushScheduled = true;
+            long delay = EVENT_FRAME_MS;
+            if (inFlightSince != 0) {
+                long waited = android.os.SystemClock.uptimeMillis() - inFlightSince;
+                delay = Math.max(EVENT_FRAME_MS, DELIVERY_TIMEOUT_MS - waited);
+            }
+            handler.postDelayed(eventFlushRunnable, delay);
+        }
+
+        /** UI thread: hand everything queued to the page in one evaluateJavascript. */
+        private void flushEvents() {
+            StringBuilder js;
+            WebView target;
+            synchronized (eventQueue) {
+                flushScheduled = false;
+                if (eventQueue.isEmpty() && droppedEvents == 0) return;
+                if (activeTabIndex < 0 || activeTabIndex >= tabs.size()
+                        || tabs.get(activeTabIndex).webView == null) {
+                    Log.w(BTAG, "dispatchEvent no tab, dropping " + eventQueue.size() + " events");
+                    eventQueue.clear();
+                    droppedEvents = 0;
+                    return;
                 }
-            });
+                target = tabs.get(activeTabIndex).webView;
+                js = new StringBuilder(64 + eventQueue.size() * 160);
+                js.append("(function(){var e=[");
+                boolean first = true;
+                if (droppedEvents > 0) {
+                    Log.w(BTAG, "Event queue overflow, dropped " + droppedEvents);
+                    js.append("{\"type\":\"overflow\",\"data\":{\"dropped\":").append(droppedEvents).append("}}");
+                    droppedEvents = 0;
+                    first = false;
+                }
+                String event;
+                while ((event = eventQueue.poll()) != null) {
+                    if (!first) js.append(',');
+                    js.append(event);
+                    first = false;
+                }
+                js.append("];if(window.onLeicaEvents)window.onLeicaEvents(e);"
+                    + "else if(window.onLeicaEvent)for(var i=0;i<e.length;i++)"
+                    + "window.onLeicaEvent(e[i].type,e[i].data);})();");
+                inFlightSince = android.os.SystemClock.uptimeMillis();
+            }
+            try {
+                target.evaluateJavascript(js.toString(), eventDeliveredCallback);
+            } catch (Exception e) {
+                Log.e(BTAG, "evaluateJs failed", e);
+                eventDeliveredCallback.onReceiveValue(null);
+            }
+        }
+
+        private class EventFlushRunnable implements Runnable {
+            @Override
+            public void run() {
+                flushEvents();
+            }
+        }
+
+        /** The page has run the batch: release the next one if anything queued meanwhile. */
+        private class EventDeliveredCallback implements ValueCallback<String> {
+            @Override
+            public void onReceiveValue(String value) {
+                synchronized (eventQueue) {
+                    inFlightSince = 0;
+                    if (flushScheduled) {
+                        // Was waiting on this batch; deliver the next one at frame pace
+                        handler.removeCallbacks(eventFlushRunnable);
+                        flushScheduled = false;
+                    }
+                    if (!eventQueue.isEmpty() || droppedEvents > 0) scheduleEventFlush();
+                }
+            }
         }
 
         private boolean hasScanPermission() {
@@ -1803,15 +2766,115 @@ public class WebViewActivity extends Activity {
             return true;
         }
 
-        private String jsEscape(String s) {
-            if (s == null) return "";
-            return s.replace("\\", "\\\\").replace("\"", "\\\"")
-                    .replace("\n", "\\n").replace("\r", "\\r");
+        // ---- Packet decoding ----
+        // Notifications arrive on a binder thread at device rate (DST360 streams angles),
+        // so the hot path reuses one buffer and writes numbers, hex and escapes by hand:
+        // the only allocation per packet is the event string itself.
+
+        private final StringBuilder packetJson = new StringBuilder(512);
+        private final java.util.HashMap<UUID, String> uuidStrings = new java.util.HashMap<>();
+
+        /** Caller holds packetJson. */
+        private StringBuilder beginEvent(String type) {
+            packetJson.setLength(0);
+            return packetJson.append("{\"type\":\"").append(type).append("\",\"data\":");
+        }
+
+        /** Caller holds packetJson. */
+        private String endEvent() {
+            return packetJson.append('}').toString();
+        }
+
+        /** ,"rawHex":"..","ascii":"..","isAscii":b,"length":n */
+        private void appendRaw(StringBuilder sb, byte[] raw) {
+            sb.append(",\"rawHex\":\"");
+            for (byte b : raw) sb.append(HEX_UPPER[(b >> 4) & 0xF]).append(HEX_UPPER[b & 0xF]);
+            sb.append("\",\"ascii\":\"");
+            // CR, LF and TAB reach the page as the visible text \r \n \t, as before
+            int mark = sb.length();
+            boolean allPrintable = true;
+            for (byte b : raw) {
+                int v = b & 0xFF;
+                if (v == 0x0D) sb.append("\\\\r");
+                else if (v == 0x0A) sb.append("\\\\n");
+                else if (v == 0x09) sb.append("\\\\t");
+                else if (v == '"' || v == '\\') sb.append('\\').append((char) v);
+                else if (v >= 0x20 && v <= 0x7E) sb.append((char) v);
+                else {
+                    allPrintable = false;
+                    sb.setLength(mark);
+                    break;
+                }
+            }
+            sb.append("\",\"isAscii\":").append(allPrintable).append(",\"length\":").append(raw.length);
+        }
+
+        private String uuidString(UUID uuid) {
+            synchronized (uuidStrings) {
+                String s = uuidStrings.get(uuid);
+                if (s == null) {
+                    s = uuid.toString();
+                    uuidStrings.put(uuid, s);
+                }
+                return s;
+            }
         }
 
-        private String bytesToHex(byte[] bytes) {
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) sb.append(String.format("%02X", b));
+        private float leFloat(byte[] b, int off) {
+            return Float.intBitsToFloat((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8
+                | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24);
+        }
+
+        private int leU16(byte[] b, int off) {
+            return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8;
+        }
+
+        /** Same text as %f (6 decimals) without Formatter; NaN/Infinity become null. */
+        private void appendFixed6(StringBuilder sb, float f) {
+            if (Float.isNaN(f) || Float.isInfinite(f)) {
+                sb.append("null");
+                return;
+            }
+            double v = f;
+            if (v < 0) {
+                sb.append('-');
+                v = -v;
+            }
+            long scaled = Math.round(v * 1e6);
+            sb.append(scaled / 1000000).append('.');
+            long frac = scaled % 1000000;
+            for (long div = 100000; div > frac && div > 1; div /= 10) sb.append('0');
+            sb.append(frac);
+        }
+
+        /** Escape for a JSON/JS double-quoted string, in one pass. */
+        private String jsEscape(String s) {
+            if (s == null) return "";
+            int i = 0;
+            int n = s.length();
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\' || c < 0x20) break;
+                i++;
+            }
+            if (i == n) return s;
+            StringBuilder sb = new StringBuilder(n + 16).append(s, 0, i);
+            for (; i < n; i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append("\\u00").append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0xF]);
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
             return sb.toString();
         }
     }
@@ -0,0 +1,114 @@
+package com.voiceportal.launcher;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+/**
+ * Keeps one WebView created ahead of time so a new tab doesn't pay for Chromium
+ * startup, settings and renderer spawn on the critical path. The spare is built
+ * on an application-context MutableContextWrapper with base settings applied and
+ * about:blank loaded; acquire() swaps in the activity context, and WebViewActivity
+ * attaches its clients and VPNative bridge before the first loadUrl.
+ *
+ * Main thread only, like every WebView call.
+ */
+public class WebViewPool {
+    private static final String TAG = "WebViewPool";
+
+    private static final Object POOLED_MARK = new Object();
+    private static WebView spare;
+
+    /** Create the spare WebView if there is none. Call on the main thread. */
+    public static void prewarm(Context context) {
+        if (spare != null) return;
+        long start = System.currentTimeMillis();
+        try {
+            WebView webView = new WebView(new MutableContextWrapper(context.getApplicationContext()));
+            applyBaseSettings(webView);
+            // Without a client a renderer crash would take the whole app down
+            webView.setWebViewClient(new SpareClient());
+            webView.loadUrl("about:blank");
+            spare = webView;
+            Log.d(TAG, "Pre-warmed WebView in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            Log.w(TAG, "Pre-warm failed: " + e.getMessage());
+        }
+    }
+
+    /** Refill the pool once the main thread has nothing better to do. */
+    public static void prewarmWhenIdle(Context context) {
+        if (spare != null) return;
+        Looper.myQueue().addIdleHandler(new PrewarmIdleHandler(context.getApplicationContext()));
+    }
+
+    /** Take the spare, rebound to the activity, or null when the pool is empty. */
+    public static WebView acquire(Activity activity) {
+        WebView webView = spare;
+        spare = null;
+        if (webView == null) return null;
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(activity);
+        webView.setTag(POOLED_MARK);
+        return webView;
+    }
+
+    /**
+     * True once for a pooled WebView after its first real page: the caller should
+     * clearHistory() so Back doesn't land on the warm-up about:blank.
+     */
+    public static boolean consumeWarmupHistory(WebView webView) {
+        if (webView.getTag() != POOLED_MARK) return false;
+        webView.setTag(null);
+        return true;
+    }
+
+    /** Drop the spare, e.g. on memory pressure. */
+    public static void clear() {
+        if (spare != null) {
+            spare.destroy();
+            spare = null;
+        }
+    }
+
+    /** Settings that don't depend on the hosting activity. */
+    public static void applyBaseSettings(WebView webView) {
+        WebSettings settings = webView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setDomStorageEnabled(true);
+        settings.setMediaPlaybackRequiresUserGesture(false);
+        settings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+        settings.setAllowFileAccess(true);
+        settings.setDatabaseEnabled(true);
+        settings.setCacheMode(WebSettings.LOAD_NO_CACHE);
+
+        CookieManager.getInstance().setAcceptThirdPartyCookies(webView, true);
+    }
+
+    private static class SpareClient extends WebViewClient {
+        @Override
+        public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+            if (spare == view) spare = null;
+            view.destroy();
+            return true;
+        }
+    }
+
+    private static class PrewarmIdleHandler implements MessageQueue.IdleHandler {
+        private final Context context;
+        PrewarmIdleHandler(Context context) { this.context = context; }
+
+        @Override
+        public boolean queueIdle() {
+            prewarm(context);
+            return false;
+        }
+    }
+}